@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Rendered JSON of GET /films/popular for each requested count, written to the response as is.
+// An entry is dropped only when a like or an update touches a film that is in it or enters it.
+@Component
+public class PopularResponseCache {
+    private final FilmService filmService;
+    private final PopularityIndex popularityIndex;
+    private final ObjectMapper objectMapper;
+    private final int maxCount;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private long generation; // guarded by this; moves on every change, so renders that raced with one are not stored
+
+    public PopularResponseCache(FilmService filmService, PopularityIndex popularityIndex, ObjectMapper objectMapper,
+                                @Value("${filmorate.cache.popular.max-count:100}") int maxCount) {
+        this.filmService = filmService;
+        this.popularityIndex = popularityIndex;
+        this.objectMapper = objectMapper;
+        this.maxCount = maxCount;
+    }
+
+    // JSON body for the given count, or null if such counts are not cached
+    public byte[] get(int count) {
+        if (count <= 0 || count > maxCount) {
+            return null;
+        }
+        Entry entry = entries.get(count);
+        if (entry != null) {
+            return entry.body();
+        }
+
+        long renderedAt;
+        synchronized (this) {
+            renderedAt = generation;
+        }
+        List<Film> films = filmService.getPopular(count);
+        Entry rendered = new Entry(serialize(films), films.stream().mapToInt(Film::getId).toArray());
+        synchronized (this) {
+            if (generation == renderedAt) {
+                entries.putIfAbsent(count, rendered);
+            }
+        }
+        return rendered.body();
+    }
+
+    // ___________Invalidation___________
+    // The film's likes are part of the body, and a new like count may move it into the top N
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        invalidate(event.getFilmId());
+    }
+
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        invalidate(event.getFilm().getId());
+    }
+
+    private synchronized void invalidate(int filmId) {
+        generation++;
+        if (entries.isEmpty()) {
+            return;
+        }
+        int rank = popularityIndex.rankOf(filmId, maxCount);
+        entries.entrySet().removeIf(e -> e.getValue().contains(filmId) || (rank >= 0 && rank < e.getKey()));
+    }
+
+    private byte[] serialize(List<Film> films) {
+        try {
+            return objectMapper.writeValueAsBytes(films);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to render popular films: " + e.getMessage(), e);
+        }
+    }
+
+    private record Entry(byte[] body, int[] filmIds) {
+        boolean contains(int filmId) {
+            for (int id : filmIds) {
+                if (id == filmId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
\ No newline at end of file
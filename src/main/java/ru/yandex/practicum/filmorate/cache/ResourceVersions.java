@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmStamp;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ETags of the cacheable reads. GET /films/popular is served from the primary, its ETag is built from version
+// counters of films and likes without loading anything. The other reads may come from a replica that lags
+// behind the counters, so their ETags are built from row versions and like counts: a conditional request reads
+// just those, a body is sent with the ETag of the rows it was loaded from. A replica behind the client's copy
+// can then only cause a miss, never a stale body under the ETag of a newer state.
+@Component
+public class ResourceVersions {
+    // Counters start from zero after a restart, so every counter ETag also carries the start time of this instance
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Integer, AtomicLong> films = new ConcurrentHashMap<>();
+    private final PopularityIndex popularityIndex;
+
+    public ResourceVersions(PopularityIndex popularityIndex) {
+        this.popularityIndex = popularityIndex;
+    }
+
+    // ___________Listeners___________
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        bump(films, event.getFilm().getId());
+    }
+
+    // Likes are part of the film representation
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        bump(films, event.getFilmId());
+    }
+
+    // ___________ETags___________
+    // GET /films/{id}: the row version covers the fields, the count the likes. A like replaced by another one
+    // between two requests keeps the count, the list of likes is then refreshed with the next change.
+    public String filmEtag(FilmStamp film) {
+        return "\"f" + film.id() + "-" + film.version() + "-" + film.likeCount() + "\"";
+    }
+
+    public String filmEtag(Film film) {
+        return filmEtag(FilmStamp.of(film));
+    }
+
+    // GET /films/popular?count=N: changes with the ranking and with every film that is in the top N
+    public String popularEtag(int count) {
+        List<Integer> top = popularityIndex.top(count);
+        long hash = 17;
+        for (int filmId : top) {
+            hash = hash * 31 + filmId;
+            hash = hash * 31 + version(films, filmId);
+        }
+        return "\"p" + count + "-" + popularityIndex.getRankingVersion() + "-" + Long.toHexString(hash) + "-" +
+                epoch + "\"";
+    }
+
+    // GET /films/popular?count=N&genreId=&mpaId=&year=: the films of the filtered top N in their order
+    public String popularEtag(int count, Integer genreId, Integer mpaId, Integer year, List<FilmStamp> top) {
+        long hash = 17;
+        for (FilmStamp film : top) {
+            hash = hash * 31 + film.id();
+            hash = hash * 31 + film.version();
+            hash = hash * 31 + film.likeCount();
+        }
+        return "\"p" + count + "-" + genreId + "-" + mpaId + "-" + year + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    // GET /users/{id}/friends: the friends in their order with their row versions (friend id -> version)
+    public String friendsEtag(int userId, Map<Integer, Long> friendVersions) {
+        long hash = 17;
+        for (Map.Entry<Integer, Long> friend : friendVersions.entrySet()) {
+            hash = hash * 31 + friend.getKey();
+            hash = hash * 31 + friend.getValue();
+        }
+        return "\"u" + userId + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    public String friendsEtag(int userId, List<User> friends) {
+        Map<Integer, Long> friendVersions = new LinkedHashMap<>();
+        for (User friend : friends) {
+            friendVersions.put(friend.getId(), friend.getVersion() == null ? 0 : friend.getVersion());
+        }
+        return friendsEtag(userId, friendVersions);
+    }
+
+    public long getRankingVersion() {
+        return popularityIndex.getRankingVersion();
+    }
+
+    private static void bump(Map<Integer, AtomicLong> versions, int id) {
+        versions.computeIfAbsent(id, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static long version(Map<Integer, AtomicLong> versions, int id) {
+        AtomicLong version = versions.get(id);
+        return version == null ? 0 : version.get();
+    }
+}
\ No newline at end of file
@@ -2,9 +2,24 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.cache.PopularResponseCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmStamp;
+import ru.yandex.practicum.filmorate.model.FilmSuggestion;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOutcome;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.service.FilmSearchService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.web.PopularityStream;
 
 import java.util.List;
 
@@ -12,11 +27,25 @@ import java.util.List;
 @RestController
 @RequestMapping("/films")
 public class FilmController {
+    private static final String RANKING_VERSION_HEADER = "X-Ranking-Version";
+
     private final FilmService filmService;
+    private final ResourceVersions versions;
+    private final PopularResponseCache popularResponseCache;
+    private final FilmSearchService filmSearchService;
+    private final RecommendationService recommendationService;
+    private final PopularityStream popularityStream;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ResourceVersions versions,
+                          PopularResponseCache popularResponseCache, FilmSearchService filmSearchService,
+                          RecommendationService recommendationService, PopularityStream popularityStream) {
         this.filmService = filmService;
+        this.versions = versions;
+        this.popularResponseCache = popularResponseCache;
+        this.filmSearchService = filmSearchService;
+        this.recommendationService = recommendationService;
+        this.popularityStream = popularityStream;
     }
 
     // ___________Films___________
@@ -32,10 +61,19 @@ public class FilmController {
         return filmService.updateFilm(film);
     }
 
-    // Getting a film bi id
+    // Getting a film bi id (304 if the client's ETag is still current). The ETag is checked against the version
+    // and like count alone; the film is only loaded on a miss and is sent with the ETag of the film as read.
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable int id) {
-        return filmService.getFilmById(id);
+    public Film getFilmById(@PathVariable int id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null &&
+                request.checkNotModified(versions.filmEtag(filmService.getFilmStamp(id)))) {
+            return null;
+        }
+        Film film = filmService.getFilmById(id);
+        if (request.checkNotModified(versions.filmEtag(film))) {
+            return null;
+        }
+        return film;
     }
 
     // Getting a list of all movies
@@ -44,22 +82,101 @@ public class FilmController {
         return filmService.getAllFilms();
     }
 
+    // Getting several movies by id (GET /films?ids=1,2,3), in the requested order
+    @GetMapping(params = "ids")
+    public MultiGetResult<Film> getFilmsByIds(@RequestParam List<Integer> ids) {
+        return filmService.getFilmsByIds(ids);
+    }
+
+    // Searching films by words of the name and description, best matches first
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q,
+                                  @RequestParam(defaultValue = "0") int page,
+                                  @RequestParam(defaultValue = "20") int size) {
+        return filmSearchService.search(q, page, size);
+    }
+
+    // Suggesting films for the search box as the user types
+    @GetMapping("/autocomplete")
+    public List<FilmSuggestion> autocomplete(@RequestParam(defaultValue = "") String prefix,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        return filmSearchService.autocomplete(prefix, limit);
+    }
+
+    // Films liked by the users who liked this one
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        return recommendationService.getSimilarFilms(id, count);
+    }
+
     //___________Likes__________
-    // Adding a like to a movie
+    // Adding a like to a movie; answered once the like is written (see FilmService.awaitLikeWrites)
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable int id, @PathVariable int userId) {
         filmService.addLike(id, userId);
+        filmService.awaitLikeWrites();
     }
 
     // Removing a like from a movie
     @DeleteMapping("/{id}/like/{userId}")
     public void removeLike(@PathVariable int id, @PathVariable int userId) {
         filmService.removeLike(id, userId);
+        filmService.awaitLikeWrites();
+    }
+
+    // Applying many likes and unlikes in one request; the response has an outcome per operation, in order
+    @PostMapping("/likes/batch")
+    public List<LikeOutcome> applyLikes(@RequestBody List<LikeOperation> operations) {
+        List<LikeOutcome> outcomes = filmService.applyLikes(operations);
+        filmService.awaitLikeWrites();
+        return outcomes;
     }
 
-    // Getting a list of the most popular movies
+    // Getting a list of the most popular movies (304 if the client's ETag is still current).
+    // JSON is written from pre-rendered bytes; CBOR and Smile clients get the list converted as usual.
+    // Filtered lists (genre, MPA rating, release year) are built from the per-bucket rankings and not cached.
     @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopular(count);
+    public ResponseEntity<?> getPopular(@RequestParam(defaultValue = "10") int count,
+                                        @RequestParam(required = false) Integer genreId,
+                                        @RequestParam(required = false) Integer mpaId,
+                                        @RequestParam(required = false) Integer year,
+                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                        WebRequest request) {
+        if (genreId != null || mpaId != null || year != null) {
+            if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null && request.checkNotModified(
+                    versions.popularEtag(count, genreId, mpaId, year,
+                            filmService.getPopularStamps(count, genreId, mpaId, year)))) {
+                return null;
+            }
+            List<Film> popular = filmService.getPopular(count, genreId, mpaId, year);
+            if (request.checkNotModified(versions.popularEtag(count, genreId, mpaId, year,
+                    popular.stream().map(FilmStamp::of).toList()))) {
+                return null;
+            }
+            return ResponseEntity.ok(popular);
+        }
+        long rankingVersion = versions.getRankingVersion();
+        if (request.checkNotModified(versions.popularEtag(count))) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(RANKING_VERSION_HEADER, Long.toString(rankingVersion));
+        if (!acceptsBinary(accept)) {
+            byte[] body = popularResponseCache.get(count);
+            if (body != null) {
+                return response.contentType(MediaType.APPLICATION_JSON).body(body);
+            }
+        }
+        return response.body(filmService.getPopular(count));
+    }
+
+    // Server-Sent Events with the top films: the current ranking first, then a frame per interval with changes
+    @GetMapping(value = "/popular/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPopular(@RequestParam(defaultValue = "10") int count) {
+        return popularityStream.subscribe(count);
+    }
+
+    private static boolean acceptsBinary(String accept) {
+        return accept != null && (accept.contains("cbor") || accept.contains("smile"));
     }
 }
\ No newline at end of file
@@ -2,8 +2,16 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
@@ -13,10 +21,17 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final ResourceVersions versions;
+    private final RecommendationService recommendationService;
+    private final FeedService feedService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ResourceVersions versions,
+                          RecommendationService recommendationService, FeedService feedService) {
         this.userService = userService;
+        this.versions = versions;
+        this.recommendationService = recommendationService;
+        this.feedService = feedService;
     }
 
     //_________User_________
@@ -38,6 +53,26 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    // Getting several users by id (GET /users?ids=1,2,3), in the requested order
+    @GetMapping(params = "ids")
+    public MultiGetResult<User> getUsersByIds(@RequestParam List<Integer> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
+    // Films liked by users with a similar taste
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        return recommendationService.getRecommendations(id, count);
+    }
+
+    // Likes, friend changes and film edits of the user, their friends and the films they liked, newest first.
+    // The next page is requested with cursor = eventId of the last event received.
+    @GetMapping("/{id}/feed")
+    public List<FeedEvent> getFeed(@PathVariable int id, @RequestParam(required = false) Long cursor,
+                                   @RequestParam(defaultValue = "20") int limit) {
+        return feedService.getFeed(id, cursor, limit);
+    }
+
     //_________Friends_________
     // Adding a new friend
     @PutMapping("/{id}/friends/{friendId}")
@@ -51,10 +86,19 @@ public class UserController {
         return userService.removeFriend(id, friendId);
     }
 
-    // Getting a list of friends
+    // Getting a list of friends (304 if the client's ETag is still current). The ETag is checked against the
+    // friends' row versions alone; the friends are only loaded on a miss and sent with the ETag of the list as read.
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable int id) {
-        return userService.getFriends(id);
+    public List<User> getFriends(@PathVariable int id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null &&
+                request.checkNotModified(versions.friendsEtag(id, userService.getFriendVersions(id)))) {
+            return null;
+        }
+        List<User> friends = userService.getFriends(id);
+        if (request.checkNotModified(versions.friendsEtag(id, friends))) {
+            return null;
+        }
+        return friends;
     }
 
     // Getting a list of common friends
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.model.Film;
+
+// Published after a film has been created or updated
+@Data
+@AllArgsConstructor
+public class FilmChangedEvent {
+    private final Film film;
+    private final boolean created;
+}
\ No newline at end of file
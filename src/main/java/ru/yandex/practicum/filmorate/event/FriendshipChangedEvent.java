@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Published after a friendship row (userId -> friendId) has been added, confirmed or removed
+@Data
+@AllArgsConstructor
+public class FriendshipChangedEvent {
+    private final int userId;
+    private final int friendId;
+    private final Action action;
+
+    public enum Action {
+        ADDED,
+        CONFIRMED,
+        REMOVED
+    }
+}
\ No newline at end of file
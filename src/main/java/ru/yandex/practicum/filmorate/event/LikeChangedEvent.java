@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Published after a user has liked a film or taken the like back
+@Data
+@AllArgsConstructor
+public class LikeChangedEvent {
+    private final int filmId;
+    private final int userId;
+    private final boolean liked; // true - like added, false - like removed
+}
\ No newline at end of file
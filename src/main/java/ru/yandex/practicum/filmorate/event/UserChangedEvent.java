@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.model.User;
+
+// Published after a user has been created or updated
+@Data
+@AllArgsConstructor
+public class UserChangedEvent {
+    private final User user;
+    private final boolean created;
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// The entity was changed by someone else since the client read it (the version does not match)
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// The change could not be made durable in time and was not applied; the client may retry it
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.FeedEvent.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent.Operation;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Activity feeds of the users: their own likes and friend changes, those of their friends,
+// and edits of the films they liked. Events are captured from the events published by the services
+// and fanned out on write into a bounded ring per reader, so reading a feed is one ring scan.
+// Users with more followers than fanout-limit (and films with more likes) are not fanned out:
+// their events go to one ring of their own, which the followers merge in when they read.
+@Component
+public class ActivityFeed {
+    private final FriendshipStorage friendshipStorage;
+    private final LikeMatrix likeMatrix;
+    private final int capacity;
+    private final int fanoutLimit;
+    private final AtomicLong lastEventId = new AtomicLong();
+    private final Map<Integer, FeedRing> feeds = new ConcurrentHashMap<>(); // reader id -> fanned out events
+    private final Map<Integer, FeedRing> userOutboxes = new ConcurrentHashMap<>(); // high-degree user -> own events
+    private final Map<Integer, FeedRing> filmOutboxes = new ConcurrentHashMap<>(); // much liked film -> its edits
+
+    public ActivityFeed(FriendshipStorage friendshipStorage, LikeMatrix likeMatrix, FeedProperties properties) {
+        this.friendshipStorage = friendshipStorage;
+        this.likeMatrix = likeMatrix;
+        this.capacity = properties.getCapacity();
+        this.fanoutLimit = properties.getFanoutLimit();
+    }
+
+    // ___________Capture___________
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        publishByUser(event.getUserId(), EventType.LIKE, event.isLiked() ? Operation.ADD : Operation.REMOVE,
+                event.getFilmId());
+    }
+
+    @EventListener
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        Operation operation = switch (event.getAction()) {
+            case ADDED -> Operation.ADD;
+            case CONFIRMED -> Operation.UPDATE;
+            case REMOVED -> Operation.REMOVE;
+        };
+        publishByUser(event.getUserId(), EventType.FRIEND, operation, event.getFriendId());
+    }
+
+    // Film edits reach the users who liked the film
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        if (event.isCreated()) {
+            return;
+        }
+        int filmId = event.getFilm().getId();
+        FeedEvent feedEvent = newEvent(null, EventType.FILM, Operation.UPDATE, filmId);
+        int[] likers = likeMatrix.usersOf(filmId);
+        if (likers.length > fanoutLimit) {
+            outbox(filmOutboxes, filmId).add(feedEvent);
+            return;
+        }
+        for (int userId : likers) {
+            feed(userId).add(feedEvent);
+        }
+    }
+
+    // ___________Reading___________
+    // Feed events older than the cursor (null - the newest), newest first
+    public List<FeedEvent> read(int userId, Long cursor, int limit) {
+        long before = cursor == null ? Long.MAX_VALUE : cursor;
+        List<FeedEvent> events = new ArrayList<>();
+        FeedRing own = feeds.get(userId);
+        if (own != null) {
+            own.collectBefore(before, events);
+        }
+        if (!userOutboxes.isEmpty()) {
+            for (Friendship friendship : friendshipStorage.getFriendshipsByUserId(userId)) {
+                FeedRing outbox = userOutboxes.get(friendship.getFriendId());
+                if (outbox != null) {
+                    outbox.collectBefore(before, events);
+                }
+            }
+        }
+        if (!filmOutboxes.isEmpty()) {
+            for (int filmId : likeMatrix.filmsOf(userId)) {
+                FeedRing outbox = filmOutboxes.get(filmId);
+                if (outbox != null) {
+                    outbox.collectBefore(before, events);
+                }
+            }
+        }
+        // An event of a user who has become high-degree can be both fanned out and in the outbox
+        return events.stream()
+                .sorted(Comparator.comparingLong(FeedEvent::getEventId).reversed())
+                .distinct()
+                .limit(limit)
+                .toList();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // ___________Private helpers___________
+    // The user always sees their own events; their followers get them pushed or pull them from the outbox
+    private void publishByUser(int userId, EventType type, Operation operation, int entityId) {
+        FeedEvent feedEvent = newEvent(userId, type, operation, entityId);
+        feed(userId).add(feedEvent);
+        List<Integer> followers = friendshipStorage.getFollowerIds(userId);
+        if (followers.size() > fanoutLimit) {
+            outbox(userOutboxes, userId).add(feedEvent);
+            return;
+        }
+        for (int followerId : followers) {
+            feed(followerId).add(feedEvent);
+        }
+    }
+
+    private FeedEvent newEvent(Integer userId, EventType type, Operation operation, int entityId) {
+        return new FeedEvent(lastEventId.incrementAndGet(), System.currentTimeMillis(), userId, type, operation,
+                entityId);
+    }
+
+    private FeedRing feed(int userId) {
+        return feeds.computeIfAbsent(userId, id -> new FeedRing(capacity));
+    }
+
+    private FeedRing outbox(Map<Integer, FeedRing> outboxes, int id) {
+        return outboxes.computeIfAbsent(id, key -> new FeedRing(capacity));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Settings of the activity feeds (filmorate.feed.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.feed")
+public class FeedProperties {
+    // Events kept per feed; older ones are overwritten
+    private int capacity = 200;
+
+    // Users followed by more users than this (and films liked by more) are not fanned out on write,
+    // their events are kept once and merged into the followers' feeds on read
+    private int fanoutLimit = 1000;
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.util.List;
+
+// Fixed-size ring of feed events; the oldest event is overwritten when it is full.
+// Events are shared between the rings they are fanned out to, a ring only holds references.
+class FeedRing {
+    private final FeedEvent[] events;
+    private int next; // position of the next write
+    private int size;
+
+    FeedRing(int capacity) {
+        this.events = new FeedEvent[capacity];
+    }
+
+    synchronized void add(FeedEvent event) {
+        events[next] = event;
+        next = (next + 1) % events.length;
+        if (size < events.length) {
+            size++;
+        }
+    }
+
+    // Adds the events older than the cursor to the list, newest first
+    synchronized void collectBefore(long cursor, List<FeedEvent> out) {
+        for (int i = 1; i <= size; i++) {
+            FeedEvent event = events[(next - i + events.length) % events.length];
+            if (event.getEventId() < cursor) {
+                out.add(event);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,364 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSuggestion;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Trie over normalized film names. Every name is inserted from each of its words, so "wars" finds "Star Wars".
+// Each node keeps the ids of its k most liked films, so a suggestion is one walk down the prefix and no sorting.
+// A node's top k is rebuilt from its own films and its children's top k when a name changes; a like only
+// moves the film within the top k of the nodes on its paths, and most nodes are left as they are.
+@Component
+public class AutocompleteIndex {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_IDS = new int[0];
+
+    private final FilmStorage filmStorage;
+    private final int topK;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<Integer, String> names = new HashMap<>();      // film id -> name as entered
+    private final Map<Integer, Integer> likeCounts = new HashMap<>();
+    private volatile boolean loaded; // written under the write lock; read without it by build()
+
+    @Autowired
+    public AutocompleteIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                             @Value("${filmorate.autocomplete.top-k:10}") int topK) {
+        this.filmStorage = filmStorage;
+        this.topK = topK;
+    }
+
+    // Every suggestion calls it too, so once the index is loaded it returns without touching the lock
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                likeCounts.putAll(filmStorage.getLikeCounts());
+                for (Film film : filmStorage.getFilmTexts()) {
+                    insert(film.getId(), film.getName());
+                }
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A new film is inserted, a renamed one is moved to the paths of its new name
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        Film film = event.getFilm();
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return; // the initial build will read it from the storage
+            }
+            String oldName = names.get(film.getId());
+            if (Objects.equals(oldName, film.getName())) {
+                return;
+            }
+            if (oldName != null) {
+                remove(film.getId(), oldName);
+            }
+            likeCounts.putIfAbsent(film.getId(), 0);
+            insert(film.getId(), film.getName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Only the nodes on the film's paths can change their top k
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            int filmId = event.getFilmId();
+            int oldCount = likeCounts.getOrDefault(filmId, 0);
+            int newCount = Math.max(0, oldCount + (event.isLiked() ? 1 : -1));
+            likeCounts.put(filmId, newCount);
+            String name = names.get(filmId);
+            if (name == null || newCount == oldCount) {
+                return;
+            }
+            for (String key : keys(name)) {
+                List<Node> path = path(key, false);
+                for (int i = path.size() - 1; i >= 0; i--) {
+                    moveInTop(path.get(i), filmId, newCount > oldCount);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The most liked films whose name (or one of its words) starts with the prefix
+    public List<FilmSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        build();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            int count = Math.min(limit, node.top.length);
+            List<FilmSuggestion> suggestions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                suggestions.add(new FilmSuggestion(node.top[i], names.get(node.top[i])));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    // Lower case, "ё" as "е", words separated by single spaces
+    static String normalize(String text) {
+        return String.join(" ", SearchIndex.tokenize(text));
+    }
+
+    // ___________Private helpers___________
+    private void insert(int filmId, String name) {
+        if (name == null) {
+            return;
+        }
+        names.put(filmId, name);
+        for (String key : keys(name)) {
+            List<Node> path = path(key, true);
+            Node end = path.get(path.size() - 1);
+            end.films = add(end.films, filmId);
+            rebuildPath(path);
+        }
+    }
+
+    private void remove(int filmId, String name) {
+        names.remove(filmId);
+        for (String key : keys(name)) {
+            List<Node> path = path(key, false);
+            if (path.size() != key.length() + 1) {
+                continue;
+            }
+            Node end = path.get(path.size() - 1);
+            end.films = without(end.films, filmId);
+            rebuildPath(path);
+            prune(path, key);
+        }
+    }
+
+    // The normalized name and its endings that start at a word, e.g. "star wars" and "wars"
+    private static Set<String> keys(String name) {
+        String normalized = normalize(name);
+        Set<String> keys = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    // Nodes from the root to the end of the key; stops early if the key is missing and create is false
+    private List<Node> path(String key, boolean create) {
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                if (!create) {
+                    return path;
+                }
+                child = node.addChild(key.charAt(i));
+            }
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    private void rebuildPath(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            rebuildTop(path.get(i));
+        }
+    }
+
+    // Top k of a node = top k among its own films and the top k of each child
+    private void rebuildTop(Node node) {
+        int size = node.films.length;
+        for (Node child : node.children) {
+            size += child.top.length;
+        }
+        long[] candidates = new long[size];
+        int n = 0;
+        for (int filmId : node.films) {
+            candidates[n++] = rankKey(filmId);
+        }
+        for (Node child : node.children) {
+            for (int filmId : child.top) {
+                candidates[n++] = rankKey(filmId);
+            }
+        }
+        Arrays.sort(candidates);
+        int[] top = new int[Math.min(topK, size)];
+        int count = 0;
+        for (int i = 0; i < size && count < top.length; i++) {
+            if (i == 0 || candidates[i] != candidates[i - 1]) { // a film can come from several children
+                top[count++] = (int) candidates[i];
+            }
+        }
+        node.top = count == top.length ? top : Arrays.copyOf(top, count);
+    }
+
+    // The like count of one film has changed. Within the top k the film just moves; from outside it can only
+    // take the last place, and only if it got more likes. Only a film that falls to the end of a full top k
+    // makes the node look at its candidates again, since a film below the top k may now be ahead of it.
+    private void moveInTop(Node node, int filmId, boolean increased) {
+        int[] top = node.top;
+        int index = indexOf(top, filmId);
+        if (index < 0) {
+            if (!increased || top.length < topK || !ahead(filmId, top[top.length - 1])) {
+                return;
+            }
+            index = top.length - 1;
+            top[index] = filmId;
+        }
+        while (index > 0 && ahead(top[index], top[index - 1])) {
+            swap(top, index, --index);
+        }
+        while (index < top.length - 1 && ahead(top[index + 1], top[index])) {
+            swap(top, index, ++index);
+        }
+        if (!increased && index == topK - 1) {
+            rebuildTop(node);
+        }
+    }
+
+    // More likes first, then the lower id; the order of rankKey
+    private boolean ahead(int filmId, int otherId) {
+        int likes = likeCounts.getOrDefault(filmId, 0);
+        int otherLikes = likeCounts.getOrDefault(otherId, 0);
+        return likes > otherLikes || likes == otherLikes && filmId < otherId;
+    }
+
+    // Ascending order of keys = likes descending, then id ascending
+    private long rankKey(int filmId) {
+        return ((long) (Integer.MAX_VALUE - likeCounts.getOrDefault(filmId, 0)) << 32) | (filmId & 0xffffffffL);
+    }
+
+    // Drops the nodes left without films below them, from the end of the key up
+    private void prune(List<Node> path, String key) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            if (node.films.length > 0 || node.children.length > 0) {
+                return;
+            }
+            path.get(i - 1).removeChild(key.charAt(i - 1));
+        }
+    }
+
+    private static int[] add(int[] ids, int id) {
+        for (int existing : ids) {
+            if (existing == id) {
+                return ids;
+            }
+        }
+        int[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+
+    private static int indexOf(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void swap(int[] ids, int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    private static int[] without(int[] ids, int id) {
+        return Arrays.stream(ids).filter(existing -> existing != id).toArray();
+    }
+
+    // Children are kept in sorted parallel arrays instead of a map per node
+    private static final class Node {
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int[] films = NO_IDS; // films with a key that ends here
+        private int[] top = NO_IDS;   // most liked films in this subtree, best first
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(char key) {
+            int insertAt = -Arrays.binarySearch(keys, key) - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            Node child = new Node();
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        private void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+}
\ No newline at end of file
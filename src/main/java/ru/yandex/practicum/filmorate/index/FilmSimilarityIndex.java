@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Top-k "liked together" neighbours of every film, so GET /films/{id}/similar is a single map lookup.
+// The neighbours are computed from the like matrix on a background thread: all films on startup,
+// afterwards only the films whose co-likes may have changed since the previous run. The lists are approximate
+// between full builds: a like also changes the film's norm, and with it its similarity to every film sharing a
+// user with it, but only the films whose stored list holds it are recomputed, not those it may now enter.
+@Slf4j
+@Component
+public class FilmSimilarityIndex {
+    private final LikeMatrix likeMatrix;
+    private final int topK;
+    private final Map<Integer, int[]> neighbours = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "film-similarity");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FilmSimilarityIndex(LikeMatrix likeMatrix, SimilarityProperties properties) {
+        this.likeMatrix = likeMatrix;
+        this.topK = properties.getTopK();
+        long interval = properties.getRefreshInterval().toMillis();
+        if (interval > 0) {
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        likeMatrix.build();
+        for (int filmId : likeMatrix.likedFilms()) {
+            dirty.add(filmId);
+        }
+        refresher.execute(this::refreshQuietly);
+    }
+
+    // A like changes the co-like counts of the film with every other film of the same user. It also changes the
+    // norm of the film, which moves it within the lists of its neighbours; as the similarity is symmetric, those
+    // are mostly the films in its own list.
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        dirty.add(event.getFilmId());
+        for (int filmId : likeMatrix.filmsOf(event.getUserId())) {
+            dirty.add(filmId);
+        }
+        for (int filmId : neighbours.getOrDefault(event.getFilmId(), new int[0])) {
+            dirty.add(filmId);
+        }
+    }
+
+    // Stored neighbours of the film, most similar first (empty until the film has been computed)
+    public List<Integer> similar(int filmId, int count) {
+        int[] ids = neighbours.getOrDefault(filmId, new int[0]);
+        List<Integer> result = new ArrayList<>(Math.min(count, ids.length));
+        for (int i = 0; i < ids.length && i < count; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    // Recomputes the neighbours of the films marked since the previous run, in parallel
+    public void refresh() {
+        List<Integer> films = new ArrayList<>();
+        for (Iterator<Integer> it = dirty.iterator(); it.hasNext(); ) {
+            films.add(it.next());
+            it.remove(); // a film marked again while it is computed stays marked for the next run
+        }
+        if (films.isEmpty()) {
+            return;
+        }
+        films.parallelStream().forEach(filmId -> {
+            int[] top = likeMatrix.similarFilms(filmId, topK);
+            if (top.length == 0) {
+                neighbours.remove(filmId);
+            } else {
+                neighbours.put(filmId, top);
+            }
+        });
+        log.debug("Similar films recomputed for {} films.", films.size());
+    }
+
+    @PreDestroy
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Failed to recompute similar films: {}", e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Sparse user x film matrix of likes, stored both by row (films of a user) and by column (users of a film)
+// as sorted int arrays. Loaded once from film_likes and kept current by like events.
+@Component
+public class LikeMatrix {
+    // Below this many candidate users the similarities are computed on the calling thread
+    private static final int SIMILARITY_BATCH = 256;
+
+    private final FilmStorage filmStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, SortedIntSet> filmsByUser = new HashMap<>();
+    private final Map<Integer, SortedIntSet> usersByFilm = new HashMap<>();
+    private boolean loaded; // guarded by lock
+
+    @Autowired
+    public LikeMatrix(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                filmStorage.forEachLike(this::put);
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Before the listeners that read the matrix (RecommendationService drops its cache after it)
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onLikeChanged(LikeChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return; // the initial load will read it from the storage
+            }
+            if (event.isLiked()) {
+                put(event.getFilmId(), event.getUserId());
+            } else {
+                delete(event.getFilmId(), event.getUserId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // User-user collaborative filtering. Candidate neighbours are the users who liked one of the user's films,
+    // films liked by more than popularCutoff users are skipped there, they say little about taste.
+    // Jaccard similarity of the like rows is computed in parallel; films liked by the most similar
+    // neighbours (and not by the user) are scored by the sum of their similarities.
+    public List<Integer> recommend(int userId, int count, int neighbours, int popularCutoff) {
+        build();
+        lock.readLock().lock();
+        try {
+            SortedIntSet own = filmsByUser.get(userId);
+            if (own == null || own.isEmpty()) {
+                return List.of();
+            }
+            int[] candidates = candidateUsers(userId, own, popularCutoff);
+            if (candidates.length == 0) {
+                return List.of();
+            }
+            double[] similarity = new double[candidates.length];
+            // Workers only read the matrix; writers are kept out by the read lock held here
+            ForkJoinPool.commonPool().invoke(new SimilarityTask(own, candidates, similarity, 0, candidates.length));
+
+            Integer[] order = new Integer[candidates.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(similarity[b], similarity[a]));
+
+            Map<Integer, Double> scores = new HashMap<>();
+            for (int i = 0; i < Math.min(neighbours, order.length); i++) {
+                SortedIntSet films = filmsByUser.get(candidates[order[i]]);
+                double weight = similarity[order[i]];
+                for (int j = 0; j < films.size(); j++) {
+                    int filmId = films.get(j);
+                    if (!own.contains(filmId)) {
+                        scores.merge(filmId, weight, Double::sum);
+                    }
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(count)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Films most often liked together with the given one, by cosine similarity of the like columns:
+    // co-likes / sqrt(likes of the film * likes of the other film)
+    public int[] similarFilms(int filmId, int count) {
+        lock.readLock().lock();
+        try {
+            SortedIntSet users = usersByFilm.get(filmId);
+            if (users == null) {
+                return new int[0];
+            }
+            Map<Integer, Integer> coLikes = new HashMap<>();
+            for (int i = 0; i < users.size(); i++) {
+                SortedIntSet films = filmsByUser.get(users.get(i));
+                for (int j = 0; j < films.size(); j++) {
+                    if (films.get(j) != filmId) {
+                        coLikes.merge(films.get(j), 1, Integer::sum);
+                    }
+                }
+            }
+            Map<Integer, Double> similarity = new HashMap<>();
+            coLikes.forEach((otherId, common) -> {
+                double norm = Math.sqrt((double) users.size() * usersByFilm.get(otherId).size());
+                similarity.put(otherId, common / norm);
+            });
+            return similarity.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(count)
+                    .mapToInt(Map.Entry::getKey)
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of the films liked by the user
+    public int[] filmsOf(int userId) {
+        lock.readLock().lock();
+        try {
+            return toArray(filmsByUser.get(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of the users who liked the film
+    public int[] usersOf(int filmId) {
+        lock.readLock().lock();
+        try {
+            return toArray(usersByFilm.get(filmId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of the films liked by anyone
+    public int[] likedFilms() {
+        lock.readLock().lock();
+        try {
+            return usersByFilm.keySet().stream().mapToInt(Integer::intValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ___________Private helpers___________
+    private void put(int filmId, int userId) {
+        filmsByUser.computeIfAbsent(userId, id -> new SortedIntSet()).add(filmId);
+        usersByFilm.computeIfAbsent(filmId, id -> new SortedIntSet()).add(userId);
+    }
+
+    private void delete(int filmId, int userId) {
+        remove(filmsByUser, userId, filmId);
+        remove(usersByFilm, filmId, userId);
+    }
+
+    private static void remove(Map<Integer, SortedIntSet> index, int key, int value) {
+        SortedIntSet set = index.get(key);
+        if (set != null && set.remove(value) && set.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // Distinct users, other than the given one, who liked at least one of its not too popular films
+    private int[] candidateUsers(int userId, SortedIntSet own, int popularCutoff) {
+        SortedIntSet candidates = new SortedIntSet();
+        for (int i = 0; i < own.size(); i++) {
+            SortedIntSet users = usersByFilm.get(own.get(i));
+            if (users == null || users.size() > popularCutoff) {
+                continue;
+            }
+            for (int j = 0; j < users.size(); j++) {
+                if (users.get(j) != userId) {
+                    candidates.add(users.get(j));
+                }
+            }
+        }
+        return toArray(candidates);
+    }
+
+    private static int[] toArray(SortedIntSet set) {
+        if (set == null) {
+            return new int[0];
+        }
+        int[] result = new int[set.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = set.get(i);
+        }
+        return result;
+    }
+
+    // Jaccard similarity of the user's likes with each candidate's, split in halves down to SIMILARITY_BATCH
+    private final class SimilarityTask extends RecursiveAction {
+        private final SortedIntSet own;
+        private final int[] candidates;
+        private final double[] similarity;
+        private final int from;
+        private final int to;
+
+        private SimilarityTask(SortedIntSet own, int[] candidates, double[] similarity, int from, int to) {
+            this.own = own;
+            this.candidates = candidates;
+            this.similarity = similarity;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SIMILARITY_BATCH) {
+                for (int i = from; i < to; i++) {
+                    SortedIntSet other = filmsByUser.get(candidates[i]);
+                    int common = SortedIntSet.intersectionSize(own, other);
+                    similarity[i] = (double) common / (own.size() + other.size() - common);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SimilarityTask(own, candidates, similarity, from, middle),
+                    new SimilarityTask(own, candidates, similarity, middle, to));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Films ordered by like count (most liked first, ties by id), kept in memory and updated on every like.
+// Loaded from the storage once all beans exist and before the web server takes requests: a lazy load racing
+// with a like could count that like twice, once from the storage and once as a delta. The catalog is never
+// hydrated and sorted to answer "top N".
+// Besides the global ranking there is one ranking per genre, MPA rating and release year (a bucket),
+// so a filtered top N only walks the films of the smallest matching bucket.
+@Component
+public class PopularityIndex implements SmartInitializingSingleton {
+    private static final int GENRE = 1;
+    private static final int MPA = 2;
+    private static final int YEAR = 3;
+    private static final TreeSet<Long> EMPTY = new TreeSet<>();
+
+    private final FilmStorage filmStorage;
+    private final Map<Integer, Integer> likeCounts = new HashMap<>();
+    private final TreeSet<Long> ranking = new TreeSet<>();
+    private final Map<Integer, Facets> facets = new HashMap<>();
+    private final Map<Long, TreeSet<Long>> buckets = new HashMap<>();
+    private long rankingVersion;
+    private boolean loaded;
+
+    @Autowired
+    public PopularityIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    // Runs before the context starts the web server, so no like can be written while the counts are read
+    @Override
+    public synchronized void afterSingletonsInstantiated() {
+        ensureLoaded();
+    }
+
+    // A new film joins the end of the ranking and of its buckets
+    public synchronized void filmAdded(Film film) {
+        if (!loaded || likeCounts.containsKey(film.getId())) {
+            return; // the initial load will pick it up from the storage
+        }
+        likeCounts.put(film.getId(), 0);
+        ranking.add(key(0, film.getId()));
+        putFacets(film);
+        rankingVersion++;
+    }
+
+    // Genres, rating or release date may have changed: the film moves to other buckets
+    public synchronized void filmUpdated(Film film) {
+        if (!loaded || !likeCounts.containsKey(film.getId())) {
+            return;
+        }
+        removeFacets(film.getId());
+        putFacets(film);
+    }
+
+    // Applies +1 / -1 to the like count of a film; returns true if the order of films has changed
+    public synchronized boolean likeChanged(int filmId, int delta) {
+        if (!loaded) {
+            load();
+            return true;
+        }
+        int oldCount = likeCounts.getOrDefault(filmId, 0);
+        int newCount = Math.max(0, oldCount + delta);
+        long oldKey = key(oldCount, filmId);
+        long newKey = key(newCount, filmId);
+        ranking.remove(oldKey);
+        ranking.add(newKey);
+        likeCounts.put(filmId, newCount);
+        Facets film = facets.get(filmId);
+        if (film != null) {
+            for (long bucket : film.buckets()) {
+                TreeSet<Long> bucketRanking = buckets.get(bucket);
+                bucketRanking.remove(oldKey);
+                bucketRanking.add(newKey);
+            }
+        }
+
+        // The order changes only if the film jumps over at least one neighbour
+        Long passed = newKey < oldKey ? ranking.higher(newKey) : ranking.lower(newKey);
+        boolean orderChanged = passed != null && (newKey < oldKey ? passed < oldKey : passed > oldKey);
+        if (orderChanged) {
+            rankingVersion++;
+        }
+        return orderChanged;
+    }
+
+    // Ids of the most popular films, most liked first
+    public synchronized List<Integer> top(int count) {
+        ensureLoaded();
+        List<Integer> ids = new ArrayList<>(Math.min(count, ranking.size()));
+        Iterator<Long> iterator = ranking.iterator();
+        while (ids.size() < count && iterator.hasNext()) {
+            ids.add(filmId(iterator.next()));
+        }
+        return ids;
+    }
+
+    // Ids of the most popular films that match every given filter (null - not filtered)
+    public synchronized List<Integer> top(int count, Integer genreId, Integer mpaId, Integer year) {
+        ensureLoaded();
+        TreeSet<Long> smallest = ranking;
+        smallest = smaller(smallest, GENRE, genreId);
+        smallest = smaller(smallest, MPA, mpaId);
+        smallest = smaller(smallest, YEAR, year);
+
+        // The other filters are checked film by film while walking the smallest bucket
+        List<Integer> ids = new ArrayList<>(Math.min(count, smallest.size()));
+        Iterator<Long> iterator = smallest.iterator();
+        while (ids.size() < count && iterator.hasNext()) {
+            int filmId = filmId(iterator.next());
+            Facets film = facets.get(filmId);
+            if (film == null ? genreId == null && mpaId == null && year == null
+                    : film.matches(genreId, mpaId, year)) {
+                ids.add(filmId);
+            }
+        }
+        return ids;
+    }
+
+    // Position of a film in the ranking (0 - the most liked), or -1 if it is not among the first `limit` films
+    public synchronized int rankOf(int filmId, int limit) {
+        ensureLoaded();
+        Integer likes = likeCounts.get(filmId);
+        if (likes == null) {
+            return -1;
+        }
+        long filmKey = key(likes, filmId);
+        int rank = 0;
+        for (Iterator<Long> iterator = ranking.iterator(); iterator.hasNext() && rank < limit; rank++) {
+            if (iterator.next() == filmKey) {
+                return rank;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized int getLikeCount(int filmId) {
+        ensureLoaded();
+        return likeCounts.getOrDefault(filmId, 0);
+    }
+
+    // Changes only when the relative order of films changes or a film joins the ranking
+    public synchronized long getRankingVersion() {
+        ensureLoaded();
+        return rankingVersion;
+    }
+
+    // Outside a Spring context (tests) the index still loads on first use
+    private void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private void load() {
+        likeCounts.clear();
+        ranking.clear();
+        facets.clear();
+        buckets.clear();
+        filmStorage.getLikeCounts().forEach((filmId, count) -> {
+            likeCounts.put(filmId, count);
+            ranking.add(key(count, filmId));
+        });
+        for (Film film : filmStorage.getFilmFacets()) {
+            if (likeCounts.containsKey(film.getId())) {
+                putFacets(film);
+            }
+        }
+        rankingVersion++;
+        loaded = true;
+    }
+
+    private void putFacets(Film film) {
+        Facets filmFacets = Facets.of(film);
+        facets.put(film.getId(), filmFacets);
+        long filmKey = key(likeCounts.getOrDefault(film.getId(), 0), film.getId());
+        for (long bucket : filmFacets.buckets()) {
+            buckets.computeIfAbsent(bucket, b -> new TreeSet<>()).add(filmKey);
+        }
+    }
+
+    private void removeFacets(int filmId) {
+        Facets filmFacets = facets.remove(filmId);
+        if (filmFacets == null) {
+            return;
+        }
+        long filmKey = key(likeCounts.getOrDefault(filmId, 0), filmId);
+        for (long bucket : filmFacets.buckets()) {
+            TreeSet<Long> bucketRanking = buckets.get(bucket);
+            bucketRanking.remove(filmKey);
+            if (bucketRanking.isEmpty()) {
+                buckets.remove(bucket);
+            }
+        }
+    }
+
+    private TreeSet<Long> smaller(TreeSet<Long> current, int type, Integer value) {
+        if (value == null) {
+            return current;
+        }
+        TreeSet<Long> bucketRanking = buckets.getOrDefault(bucket(type, value), EMPTY);
+        return bucketRanking.size() < current.size() ? bucketRanking : current;
+    }
+
+    private static long bucket(int type, int value) {
+        return ((long) type << 32) | (value & 0xffffffffL);
+    }
+
+    // Ascending order of keys = likes descending, then id ascending
+    private static long key(int likes, int filmId) {
+        return ((long) (Integer.MAX_VALUE - likes) << 32) | (filmId & 0xffffffffL);
+    }
+
+    private static int filmId(long key) {
+        return (int) key;
+    }
+
+    // Attributes a film can be filtered by
+    private record Facets(Integer mpaId, Integer year, int[] genreIds) {
+        static Facets of(Film film) {
+            int[] genreIds = film.getGenres() == null ? new int[0]
+                    : film.getGenres().stream().mapToInt(Genre::getId).distinct().toArray();
+            return new Facets(film.getMpa() == null ? null : film.getMpa().getId(),
+                    film.getReleaseDate() == null ? null : film.getReleaseDate().getYear(),
+                    genreIds);
+        }
+
+        boolean matches(Integer genreId, Integer mpaId, Integer year) {
+            return (mpaId == null || mpaId.equals(this.mpaId))
+                    && (year == null || year.equals(this.year))
+                    && (genreId == null || hasGenre(genreId));
+        }
+
+        List<Long> buckets() {
+            List<Long> keys = new ArrayList<>(genreIds.length + 2);
+            for (int genreId : genreIds) {
+                keys.add(bucket(GENRE, genreId));
+            }
+            if (mpaId != null) {
+                keys.add(bucket(MPA, mpaId));
+            }
+            if (year != null) {
+                keys.add(bucket(YEAR, year));
+            }
+            return keys;
+        }
+
+        private boolean hasGenre(int genreId) {
+            for (int id : genreIds) {
+                if (id == genreId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+// Sorted film ids with a bit mask of the fields each film matched in, kept in primitive arrays
+class PostingList {
+    private int[] ids = new int[4];
+    private byte[] fields = new byte[4];
+    private int size;
+
+    // Adds the field bits to a film, inserting the film if it is not in the list yet
+    void add(int filmId, int fieldMask) {
+        int index = Arrays.binarySearch(ids, 0, size, filmId);
+        if (index >= 0) {
+            fields[index] |= (byte) fieldMask;
+            return;
+        }
+        int insertAt = -index - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            fields = Arrays.copyOf(fields, size * 2);
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        System.arraycopy(fields, insertAt, fields, insertAt + 1, size - insertAt);
+        ids[insertAt] = filmId;
+        fields[insertAt] = (byte) fieldMask;
+        size++;
+    }
+
+    void remove(int filmId) {
+        int index = Arrays.binarySearch(ids, 0, size, filmId);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(fields, index + 1, fields, index, size - index - 1);
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int idAt(int index) {
+        return ids[index];
+    }
+
+    int fieldsAt(int index) {
+        return fields[index];
+    }
+
+    boolean contains(int filmId) {
+        return Arrays.binarySearch(ids, 0, size, filmId) >= 0;
+    }
+}
\ No newline at end of file
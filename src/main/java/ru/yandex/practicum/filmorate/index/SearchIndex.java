@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Inverted index over film names and descriptions: word -> films containing it, plus n-gram -> films
+// for partial words. Built when the application is ready and updated whenever a film is added or changed.
+// A film matches when it contains every word of the query; exact words score higher than partial ones,
+// a word in the name higher than one in the description, and the like count is added on top.
+@Component
+public class SearchIndex {
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 2;
+    private static final double NAME_SCORE = 3.0;
+    private static final double DESCRIPTION_SCORE = 1.0;
+    private static final double PARTIAL_SCORE = 0.5;
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final FilmStorage filmStorage;
+    private final PopularityIndex popularityIndex;
+    private final int ngramSize;
+    private final double popularityWeight;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> words = new HashMap<>();
+    private final Map<String, PostingList> grams = new HashMap<>();
+    private final Map<Integer, FilmTerms> filmTerms = new HashMap<>();
+    private volatile boolean loaded; // written under the write lock; read without it by build()
+
+    @Autowired
+    public SearchIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage, PopularityIndex popularityIndex,
+                       SearchProperties properties) {
+        this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        this.ngramSize = properties.getNgramSize();
+        this.popularityWeight = properties.getPopularityWeight();
+    }
+
+    // Built once the application has started, so the first search does not pay for it.
+    // Every search calls it too, so once the index is loaded it returns without touching the lock.
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                load();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        Film film = event.getFilm();
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return; // the initial build will read it from the storage
+            }
+            removeFilm(film.getId());
+            addFilm(film.getId(), film.getName(), film.getDescription());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of the films that match every word of the query, best first; offset and limit select the page
+    public List<Integer> search(String query, long offset, int limit) {
+        Set<String> queryWords = new LinkedHashSet<>(tokenize(query));
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+        build();
+
+        Map<Integer, Double> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String word : queryWords) {
+                Map<Integer, Double> wordScores = match(word);
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    scores.keySet().retainAll(wordScores.keySet());
+                    scores.replaceAll((filmId, score) -> score + wordScores.get(filmId));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.size());
+        scores.forEach((filmId, score) -> ranked.add(Map.entry(filmId,
+                score + popularityWeight * Math.log1p(popularityIndex.getLikeCount(filmId)))));
+        ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        return ranked.stream()
+                .skip(offset)
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    // Lower-case words of a text (letters and digits; "ё" is treated as "е")
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // ___________Private helpers___________
+    private void load() {
+        for (Film film : filmStorage.getFilmTexts()) {
+            addFilm(film.getId(), film.getName(), film.getDescription());
+        }
+        loaded = true;
+    }
+
+    private Map<Integer, Double> match(String word) {
+        Map<Integer, Double> scores = new HashMap<>();
+        PostingList exact = words.get(word);
+        if (exact != null) {
+            for (int i = 0; i < exact.size(); i++) {
+                int mask = exact.fieldsAt(i);
+                double score = ((mask & NAME) != 0 ? NAME_SCORE : 0)
+                        + ((mask & DESCRIPTION) != 0 ? DESCRIPTION_SCORE : 0);
+                scores.put(exact.idAt(i), score);
+            }
+        }
+        if (ngramSize <= 0 || word.length() < ngramSize) {
+            return scores;
+        }
+
+        // Films having every n-gram of the word probably contain it as a part of a longer word
+        List<PostingList> lists = new ArrayList<>();
+        for (String gram : ngrams(word)) {
+            PostingList list = grams.get(gram);
+            if (list == null) {
+                return scores;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        PostingList smallest = lists.get(0);
+        for (int i = 0; i < smallest.size(); i++) {
+            int filmId = smallest.idAt(i);
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) {
+                inAll = lists.get(j).contains(filmId);
+            }
+            if (inAll) {
+                scores.putIfAbsent(filmId, PARTIAL_SCORE);
+            }
+        }
+        return scores;
+    }
+
+    private void addFilm(int filmId, String name, String description) {
+        Map<String, Integer> masks = new HashMap<>();
+        tokenize(name).forEach(word -> masks.merge(word, NAME, (a, b) -> a | b));
+        tokenize(description).forEach(word -> masks.merge(word, DESCRIPTION, (a, b) -> a | b));
+        Set<String> filmGrams = new HashSet<>();
+        masks.forEach((word, mask) -> {
+            words.computeIfAbsent(word, w -> new PostingList()).add(filmId, mask);
+            filmGrams.addAll(ngrams(word));
+        });
+        for (String gram : filmGrams) {
+            grams.computeIfAbsent(gram, g -> new PostingList()).add(filmId, NAME);
+        }
+        filmTerms.put(filmId, new FilmTerms(masks.keySet().toArray(new String[0]), filmGrams.toArray(new String[0])));
+    }
+
+    private void removeFilm(int filmId) {
+        FilmTerms terms = filmTerms.remove(filmId);
+        if (terms == null) {
+            return;
+        }
+        removePostings(words, terms.words(), filmId);
+        removePostings(grams, terms.grams(), filmId);
+    }
+
+    private static void removePostings(Map<String, PostingList> index, String[] terms, int filmId) {
+        for (String term : terms) {
+            PostingList list = index.get(term);
+            list.remove(filmId);
+            if (list.isEmpty()) {
+                index.remove(term);
+            }
+        }
+    }
+
+    private List<String> ngrams(String word) {
+        if (ngramSize <= 0 || word.length() < ngramSize) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>(word.length() - ngramSize + 1);
+        for (int i = 0; i + ngramSize <= word.length(); i++) {
+            result.add(word.substring(i, i + ngramSize));
+        }
+        return result;
+    }
+
+    // Terms a film was indexed under, needed to take it out again
+    private record FilmTerms(String[] words, String[] grams) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Settings of the film search index (filmorate.search.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.search")
+public class SearchProperties {
+    // Length of the n-grams indexed for partial word matches; 0 - whole words only
+    private int ngramSize = 3;
+
+    // Weight of log(1 + likes) added to the text score of a film
+    private double popularityWeight = 0.5;
+}
\ No newline at end of file
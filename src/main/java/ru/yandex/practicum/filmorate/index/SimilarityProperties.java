@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Settings of the precomputed similar films (filmorate.similar.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.similar")
+public class SimilarityProperties {
+    // Number of neighbours stored per film
+    private int topK = 20;
+
+    // Pause between recomputations of the films whose likes changed; 0 - only on startup
+    private Duration refreshInterval = Duration.ofSeconds(30);
+}
\ No newline at end of file
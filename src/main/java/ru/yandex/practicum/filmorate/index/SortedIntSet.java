@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+// Set of ints kept as a sorted, growable array: compact, and two sets intersect with one merge pass
+class SortedIntSet {
+    private int[] values = new int[4];
+    private int size;
+
+    boolean add(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    boolean remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    // Number of values present in both sets
+    static int intersectionSize(SortedIntSet a, SortedIntSet b) {
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.size && j < b.size) {
+            int diff = Integer.compare(a.values[i], b.values[j]);
+            if (diff == 0) {
+                common++;
+                i++;
+                j++;
+            } else if (diff < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return common;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpHeaders;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.Origin;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands exchanges over to a background thread, which formats and writes them. The request thread only takes
+// a snapshot of the already filtered headers and the buffered body, since the servlet request and response
+// are recycled once the exchange is over and cannot be read from another thread later.
+public class AsyncHttpLogSink implements Sink, AutoCloseable {
+    // Same logger as Logbook's default writer, so logging.level.org.zalando.logbook still switches it on and off
+    private static final Logger log = LoggerFactory.getLogger(Logbook.class);
+    private static final int DRAIN_BATCH = 256;
+
+    private final HttpLogFormatter formatter;
+    private final BlockingQueue<Exchange> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AsyncHttpLogSink(HttpLogFormatter formatter, int queueCapacity) {
+        this.formatter = formatter;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.worker = new Thread(this::run, "http-log-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public boolean isActive() {
+        return log.isTraceEnabled();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request) throws IOException {
+        enqueue(new Exchange(precorrelation, RequestSnapshot.of(request), null));
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response) throws IOException {
+        enqueue(new Exchange(correlation, null, ResponseSnapshot.of(response)));
+    }
+
+    // Number of exchanges lost because the writer could not keep up
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Never blocks: when the queue is full the exchange is dropped and counted
+    private void enqueue(Exchange exchange) {
+        if (!queue.offer(exchange)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void run() {
+        List<Exchange> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Exchange first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, DRAIN_BATCH - 1);
+                for (Exchange exchange : batch) {
+                    writeOut(exchange);
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long lost = dropped.get();
+        if (lost > 0) {
+            log.warn("HTTP log writer dropped {} exchanges because the queue was full.", lost);
+        }
+    }
+
+    // One broken message must not stop the thread
+    private void writeOut(Exchange exchange) {
+        try {
+            if (exchange.response() == null) {
+                log.trace(formatter.format(exchange.precorrelation(), exchange.request()));
+            } else {
+                log.trace(formatter.format((Correlation) exchange.precorrelation(), exchange.response()));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not format HTTP exchange {}: {}", exchange.precorrelation().getId(), e.getMessage());
+        }
+    }
+
+    // Writes out what is already queued and stops the background thread
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    // Either a request or a response; the response is written with its correlation
+    private record Exchange(Precorrelation precorrelation, HttpRequest request, HttpResponse response) {
+    }
+
+    private record RequestSnapshot(String getRemote, String getMethod, String getRequestUri, String getScheme,
+                                   String getHost, Optional<Integer> getPort, String getPath, String getQuery,
+                                   String getProtocolVersion, Origin getOrigin, HttpHeaders getHeaders,
+                                   byte[] getBody) implements HttpRequest {
+        static RequestSnapshot of(HttpRequest request) throws IOException {
+            return new RequestSnapshot(request.getRemote(), request.getMethod(), request.getRequestUri(),
+                    request.getScheme(), request.getHost(), request.getPort(), request.getPath(),
+                    request.getQuery(), request.getProtocolVersion(), request.getOrigin(), request.getHeaders(),
+                    request.getBody());
+        }
+
+        @Override
+        public HttpRequest withBody() {
+            return this;
+        }
+
+        @Override
+        public HttpRequest withoutBody() {
+            return this;
+        }
+    }
+
+    private record ResponseSnapshot(int getStatus, String getReasonPhrase, String getProtocolVersion,
+                                    Origin getOrigin, HttpHeaders getHeaders, byte[] getBody)
+            implements HttpResponse {
+        static ResponseSnapshot of(HttpResponse response) throws IOException {
+            return new ResponseSnapshot(response.getStatus(), response.getReasonPhrase(),
+                    response.getProtocolVersion(), response.getOrigin(), response.getHeaders(), response.getBody());
+        }
+
+        @Override
+        public HttpResponse withBody() {
+            return this;
+        }
+
+        @Override
+        public HttpResponse withoutBody() {
+            return this;
+        }
+    }
+}
\ No newline at end of file
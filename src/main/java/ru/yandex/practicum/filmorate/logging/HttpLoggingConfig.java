@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.Sink;
+
+import java.util.function.Predicate;
+
+// Replaces Logbook's synchronous defaults; the auto-configuration backs off when these beans exist
+@Configuration
+public class HttpLoggingConfig {
+
+    @Bean
+    public SamplingStrategy logbookStrategy(HttpLoggingProperties properties) {
+        return new SamplingStrategy(properties);
+    }
+
+    // Logbook still adds logbook.include/exclude on top of this condition
+    @Bean
+    public Predicate<HttpRequest> requestCondition(SamplingStrategy logbookStrategy) {
+        return logbookStrategy::isSampled;
+    }
+
+    // The formatter is the one Logbook configures from logbook.format.style
+    @Bean
+    public Sink logbookSink(HttpLogFormatter formatter, HttpLoggingProperties properties) {
+        return new AsyncHttpLogSink(formatter, properties.getQueueCapacity());
+    }
+}
\ No newline at end of file
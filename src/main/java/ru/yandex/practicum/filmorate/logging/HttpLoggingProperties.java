@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Settings of HTTP exchange logging (filmorate.logging.http.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.logging.http")
+public class HttpLoggingProperties {
+    // Share of exchanges that are written to the log: 0.0 - none, 1.0 - all (for development)
+    private double sampleRate = 0.01;
+
+    // How many exchanges may wait for the background writer before new ones are dropped
+    private int queueCapacity = 10_000;
+
+    // Endpoints logged without bodies, as "METHOD /ant/pattern" or just "/ant/pattern" for any method
+    private List<String> withoutBody = new ArrayList<>();
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.util.AntPathMatcher;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Logbook strategy that logs only a sample of exchanges and skips bodies of the configured endpoints.
+// The sample is drawn once per exchange, before Logbook processes the request (see HttpLoggingConfig), so an
+// exchange that is not sampled is neither buffered nor formatted, and its request and response go together.
+public class SamplingStrategy implements Strategy {
+    private static final int SAMPLE_BUCKETS = 10_000;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final int sampledBuckets;
+    private final List<EndpointPattern> withoutBody;
+
+    public SamplingStrategy(HttpLoggingProperties properties) {
+        double rate = Math.max(0.0, Math.min(1.0, properties.getSampleRate()));
+        this.sampledBuckets = (int) Math.round(rate * SAMPLE_BUCKETS);
+        this.withoutBody = properties.getWithoutBody().stream()
+                .map(EndpointPattern::parse)
+                .toList();
+    }
+
+    // Logbook's request condition: exchanges it rejects get no correlation, no buffering and no write
+    public boolean isSampled(HttpRequest request) {
+        if (sampledBuckets >= SAMPLE_BUCKETS) {
+            return true;
+        }
+        return sampledBuckets > 0 && ThreadLocalRandom.current().nextInt(SAMPLE_BUCKETS) < sampledBuckets;
+    }
+
+    // Bodies of bulk endpoints are not even buffered
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        return skipsBody(request) ? request.withoutBody() : request.withBody();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) throws IOException {
+        sink.write(precorrelation, request);
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        return skipsBody(request) ? response.withoutBody() : response.withBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        sink.write(correlation, request, response);
+    }
+
+    private boolean skipsBody(HttpRequest request) {
+        for (EndpointPattern pattern : withoutBody) {
+            if (pattern.matches(request.getMethod(), request.getPath(), pathMatcher)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "GET /films" or "/films/**"
+    private record EndpointPattern(String method, String path) {
+        static EndpointPattern parse(String value) {
+            String trimmed = value.trim();
+            int space = trimmed.indexOf(' ');
+            if (space < 0) {
+                return new EndpointPattern(null, trimmed);
+            }
+            return new EndpointPattern(trimmed.substring(0, space).toUpperCase(), trimmed.substring(space + 1).trim());
+        }
+
+        boolean matches(String requestMethod, String requestPath, AntPathMatcher matcher) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && matcher.match(path, requestPath);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// One entry of a user's activity feed. Event ids grow with time and are used as the pagination cursor.
+@Data
+@AllArgsConstructor
+public class FeedEvent {
+    private final long eventId;
+    private final long timestamp;
+    private final Integer userId; // who did it; null for film edits
+    private final EventType eventType;
+    private final Operation operation;
+    private final int entityId; // film id for LIKE and FILM, friend id for FRIEND
+
+    public enum EventType {
+        LIKE,
+        FRIEND,
+        FILM
+    }
+
+    public enum Operation {
+        ADD,
+        REMOVE,
+        UPDATE
+    }
+}
\ No newline at end of file
@@ -20,4 +20,5 @@ public class Film {
     private MpaRating mpa;
     private Set<Genre> genres = new LinkedHashSet<>();
     private Set<Integer> likes = new HashSet<>();
+    private Long version; // sent back on update for a compare-and-set; null - overwrite whatever is stored
 }
\ No newline at end of file
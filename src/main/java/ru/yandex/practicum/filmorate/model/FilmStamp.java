@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model;
+
+// What the ETag of a film is built from: its row version and number of likes, readable without loading the film
+public record FilmStamp(int id, long version, int likeCount) {
+    public static FilmStamp of(Film film) {
+        return new FilmStamp(film.getId(), film.getVersion() == null ? 0 : film.getVersion(),
+                film.getLikes() == null ? 0 : film.getLikes().size());
+    }
+}
\ No newline at end of file
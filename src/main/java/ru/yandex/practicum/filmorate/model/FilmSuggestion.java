@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+// Autocomplete entry: just enough to show a film in the search box
+@Data
+@RequiredArgsConstructor
+public class FilmSuggestion {
+    private final int id;
+    private final String name;
+}
\ No newline at end of file
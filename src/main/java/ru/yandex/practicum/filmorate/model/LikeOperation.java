@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One item of a batch like request
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeOperation {
+    private Integer filmId;
+    private Integer userId;
+    private Action action;
+
+    public enum Action {
+        LIKE,
+        UNLIKE
+    }
+}
\ No newline at end of file
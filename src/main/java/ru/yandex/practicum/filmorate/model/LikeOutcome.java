@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Result of one item of a batch like request
+@Data
+@AllArgsConstructor
+public class LikeOutcome {
+    private final Integer filmId;
+    private final Integer userId;
+    private final LikeOperation.Action action;
+    private final Status status;
+
+    public enum Status {
+        APPLIED,
+        ALREADY_LIKED, // LIKE of a film the user has liked before
+        NOT_LIKED, // UNLIKE of a film the user has not liked
+        FILM_NOT_FOUND,
+        USER_NOT_FOUND,
+        INVALID // film id, user id or action missing
+    }
+}
\ No newline at end of file
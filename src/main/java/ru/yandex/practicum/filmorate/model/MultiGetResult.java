@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Response of a request by a list of ids: the found items in the requested order and the ids not found
+@Data
+@AllArgsConstructor
+public class MultiGetResult<T> {
+    private final List<T> items;
+    private final List<Integer> missingIds;
+}
\ No newline at end of file
@@ -17,4 +17,5 @@ public class User {
     private String name;
     private LocalDate birthday;
     private Set<Integer> friends = new HashSet<>();
+    private Long version; // sent back on update for a compare-and-set; null - overwrite whatever is stored
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Settings of read coalescing in FilmService (filmorate.coalescing.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.coalescing")
+public class CoalescingProperties {
+    // How long a read waits for an identical read in flight before loading by itself
+    private Duration timeout = Duration.ofSeconds(2);
+}
\ No newline at end of file
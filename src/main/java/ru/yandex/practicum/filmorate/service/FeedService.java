@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.feed.ActivityFeed;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+
+@Slf4j
+@Service
+public class FeedService {
+    private final UserStorage userStorage;
+    private final ActivityFeed activityFeed;
+
+    @Autowired
+    public FeedService(@Qualifier("userDbStorage") UserStorage userStorage, ActivityFeed activityFeed) {
+        this.userStorage = userStorage;
+        this.activityFeed = activityFeed;
+    }
+
+    // Getting a page of the user's feed; the next page starts before the eventId of the last returned event
+    public List<FeedEvent> getFeed(int userId, Long cursor, int limit) {
+        if (limit <= 0 || limit > activityFeed.getCapacity()) {
+            throw new ValidationException("Limit must be between 1 and " + activityFeed.getCapacity() + ".");
+        }
+        userStorage.getUserById(userId)
+                .orElseThrow(() -> new NotFoundException("User with id=" + userId + " not found."));
+        List<FeedEvent> events = activityFeed.read(userId, cursor, limit);
+        log.info("Feed of user with id={} (cursor {}): {} events.", userId, cursor, events.size());
+        return events;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.index.SearchIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSuggestion;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+
+@Slf4j
+@Service
+public class FilmSearchService {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final FilmStorage filmStorage;
+    private final SearchIndex searchIndex;
+    private final AutocompleteIndex autocompleteIndex;
+
+    @Autowired
+    public FilmSearchService(@Qualifier("filmDbStorage") FilmStorage filmStorage, SearchIndex searchIndex,
+                             AutocompleteIndex autocompleteIndex) {
+        this.filmStorage = filmStorage;
+        this.searchIndex = searchIndex;
+        this.autocompleteIndex = autocompleteIndex;
+    }
+
+    // Searching films by words of the name and description; only the films of the requested page are
+    // loaded, with one query, and kept in the order of their rank
+    public List<Film> search(String query, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Search query must not be empty.");
+        }
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException("Page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        List<Film> films = MultiGet.inOrder(searchIndex.search(query, (long) page * size, size),
+                filmStorage::getFilmsByIds, Film::getId);
+        log.info("Search for '{}' (page {}, size {}) found {} films.", query, page, size, films.size());
+        return films;
+    }
+
+    // Suggesting the most liked films whose name or one of its words starts with the prefix.
+    // Served from the trie alone, nothing is loaded from the storage.
+    public List<FilmSuggestion> autocomplete(String prefix, int limit) {
+        if (limit <= 0 || limit > autocompleteIndex.getTopK()) {
+            throw new ValidationException("Limit must be between 1 and " + autocompleteIndex.getTopK() + ".");
+        }
+        return autocompleteIndex.suggest(prefix, limit);
+    }
+}
\ No newline at end of file
@@ -1,18 +1,36 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
-
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmStamp;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOutcome;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.routing.ReadYourWrites;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.LinkedHashSet;
 
@@ -21,60 +39,118 @@ import static ru.yandex.practicum.filmorate.validator.FilmValidator.validateFilm
 @Slf4j
 @Service
 public class FilmService {
+    static final int MAX_LIKE_BATCH = 1_000;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final MpaService mpaService;
     private final GenreService genreService;
+    private final PopularityIndex popularityIndex;
+    private final ApplicationEventPublisher events;
+    private final ReadYourWrites readYourWrites; // null - no replicas, every read goes to the primary
+    private final SingleFlight<Integer, Optional<Film>> filmReads;
+    private final SingleFlight<PopularQuery, List<Film>> popularReads;
+
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, MpaService mpaService,
+                       GenreService genreService, PopularityIndex popularityIndex, ApplicationEventPublisher events) {
+        this(filmStorage, userStorage, mpaService, genreService, popularityIndex, events,
+                new CoalescingProperties(), (ReadYourWrites) null);
+    }
 
     @Autowired
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
                        @Qualifier("userDbStorage") UserStorage userStorage,
                        @Qualifier("mpaService") MpaService mpaService,
-                       @Qualifier("genreService") GenreService genreService) {
+                       @Qualifier("genreService") GenreService genreService,
+                       PopularityIndex popularityIndex,
+                       ApplicationEventPublisher events,
+                       CoalescingProperties coalescing,
+                       ObjectProvider<ReadYourWrites> readYourWrites) {
+        this(filmStorage, userStorage, mpaService, genreService, popularityIndex, events, coalescing,
+                readYourWrites.getIfAvailable());
+    }
+
+    FilmService(FilmStorage filmStorage, UserStorage userStorage, MpaService mpaService, GenreService genreService,
+                PopularityIndex popularityIndex, ApplicationEventPublisher events, CoalescingProperties coalescing,
+                ReadYourWrites readYourWrites) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.mpaService = mpaService;
         this.genreService = genreService;
+        this.popularityIndex = popularityIndex;
+        this.events = events;
+        this.readYourWrites = readYourWrites;
+        long timeout = coalescing.getTimeout().toMillis();
+        this.filmReads = new SingleFlight<>(timeout, TimeUnit.MILLISECONDS);
+        this.popularReads = new SingleFlight<>(timeout, TimeUnit.MILLISECONDS);
     }
 
     // ___________Films___________
-    // Adding a new movie
+    // Adding a new movie; the film, its genres and its read model row are written in one transaction
+    @Transactional
     public Film addFilm(Film film) {
         log.info("Request received to add movie: {}", film);
         validateFilm(film);
         validateAndSetMpaAndGenres(film);
         Film createdFilm = filmStorage.addFilm(film);
+        afterCommit(() -> {
+            popularityIndex.filmAdded(createdFilm);
+            events.publishEvent(new FilmChangedEvent(createdFilm, true));
+        });
         log.info("Movie added successfully: {}", createdFilm);
         return createdFilm;
     }
 
-    // Updating an existing movie by id
+    // Updating an existing movie by id; the storage tells a missing film (404) from a stale version (409)
+    @Transactional
     public Film updateFilm(Film film) {
         log.info("Received a request to update film: {}", film);
         validateFilm(film);
-        filmStorage.getFilmById(film.getId())
-                .orElseThrow(() -> new NotFoundException("Movie with id=" + film.getId() + " not found."));
         validateAndSetMpaAndGenres(film);
         Film updatedFilm = filmStorage.updateFilm(film);
+        afterCommit(() -> {
+            popularityIndex.filmUpdated(updatedFilm);
+            events.publishEvent(new FilmChangedEvent(updatedFilm, false));
+        });
         log.info("Movie with id={} updated successfully.", updatedFilm.getId());
         return updatedFilm;
     }
 
     // Getting a list of all movies
+    @Transactional(readOnly = true)
     public List<Film> getAllFilms() {
         List<Film> films = filmStorage.getAllFilms();
         log.info("Request for list of all movies received. Quantity: {}", films.size());
         return films;
     }
 
-    // Getting a movie by id
+    // Getting a movie by id; concurrent requests for the same film share one storage read
+    @Transactional(readOnly = true)
     public Film getFilmById(int id) {
-        return filmStorage.getFilmById(id)
+        return coalesce(filmReads, id, () -> filmStorage.getFilmById(id))
                 .orElseThrow(() -> new NotFoundException("Movie with id=" + id + " not found."));
     }
 
+    // Version and like count of a movie for a conditional GET, read without loading the movie
+    @Transactional(readOnly = true)
+    public FilmStamp getFilmStamp(int id) {
+        return filmStorage.getFilmStamps(List.of(id)).stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Movie with id=" + id + " not found."));
+    }
+
+    // Getting several movies by id with one query per table; missing ids are reported, not failed on
+    @Transactional(readOnly = true)
+    public MultiGetResult<Film> getFilmsByIds(List<Integer> ids) {
+        MultiGetResult<Film> result = MultiGet.load(ids, filmStorage::getFilmsByIds, Film::getId);
+        log.info("Request for {} movies by id. Found: {}, missing: {}", ids.size(), result.getItems().size(),
+                result.getMissingIds());
+        return result;
+    }
+
     //___________Likes__________
-    // Adding a like to a movie
+    // Adding a like to a movie; a like that fails on a shard rolls back the like count of the read model
+    @Transactional
     public void addLike(int filmId, int userId) {
         filmStorage.getFilmById(filmId)
                 .orElseThrow(() -> new NotFoundException("Film with id=" + filmId + " not found."));
@@ -82,10 +158,15 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("User with id=" + userId + " not found."));
 
         filmStorage.addLike(filmId, userId);
+        afterCommit(() -> {
+            popularityIndex.likeChanged(filmId, 1);
+            events.publishEvent(new LikeChangedEvent(filmId, userId, true));
+        });
         log.info("User with id={} liked film with id={}", userId, filmId);
     }
 
     // Removing a like from a movie
+    @Transactional
     public void removeLike(int filmId, int userId) {
         filmStorage.getFilmById(filmId)
                 .orElseThrow(() -> new NotFoundException("Film with id=" + filmId + " not found."));
@@ -93,19 +174,161 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("User with id=" + userId + " not found."));
 
         filmStorage.removeLike(filmId, userId); // Удаляем из базы
+        afterCommit(() -> {
+            popularityIndex.likeChanged(filmId, -1);
+            events.publishEvent(new LikeChangedEvent(filmId, userId, false));
+        });
 
         log.info("User with id={} removed like from film with id={}", userId, filmId);
     }
 
-    // Getting a list of the most popular movies
+    // Waits until the likes changed by this thread are written, when the storage only does that after the
+    // transaction (a GROUP_COMMIT like buffer); not transactional, so no connection is held while waiting
+    public void awaitLikeWrites() {
+        filmStorage.awaitLikeWrites();
+    }
+
+    // Applying many likes and unlikes at once: the film and user ids are checked with one query each,
+    // the changes are written as JDBC batches. Every operation gets its own outcome, a bad one does not
+    // fail the others.
+    @Transactional
+    public List<LikeOutcome> applyLikes(List<LikeOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ValidationException("At least one like operation must be given.");
+        }
+        if (operations.size() > MAX_LIKE_BATCH) {
+            throw new ValidationException("No more than " + MAX_LIKE_BATCH + " like operations per request.");
+        }
+        Set<Integer> filmIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        for (LikeOperation operation : operations) {
+            if (isComplete(operation)) {
+                filmIds.add(operation.getFilmId());
+                userIds.add(operation.getUserId());
+            }
+        }
+        Set<Integer> existingFilms = filmStorage.findFilmIds(filmIds);
+        Set<Integer> existingUsers = userStorage.findUserIds(userIds);
+
+        LikeOutcome.Status[] statuses = new LikeOutcome.Status[operations.size()];
+        List<LikeOperation> valid = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            if (!isComplete(operation)) {
+                statuses[i] = LikeOutcome.Status.INVALID;
+            } else if (!existingFilms.contains(operation.getFilmId())) {
+                statuses[i] = LikeOutcome.Status.FILM_NOT_FOUND;
+            } else if (!existingUsers.contains(operation.getUserId())) {
+                statuses[i] = LikeOutcome.Status.USER_NOT_FOUND;
+            } else {
+                valid.add(operation);
+                positions.add(i);
+            }
+        }
+
+        boolean[] changed = valid.isEmpty() ? new boolean[0] : filmStorage.applyLikes(valid);
+        int applied = 0;
+        for (int j = 0; j < valid.size(); j++) {
+            LikeOperation operation = valid.get(j);
+            boolean like = operation.getAction() == LikeOperation.Action.LIKE;
+            if (changed[j]) {
+                afterCommit(() -> {
+                    popularityIndex.likeChanged(operation.getFilmId(), like ? 1 : -1);
+                    events.publishEvent(new LikeChangedEvent(operation.getFilmId(), operation.getUserId(), like));
+                });
+                statuses[positions.get(j)] = LikeOutcome.Status.APPLIED;
+                applied++;
+            } else {
+                statuses[positions.get(j)] = like ? LikeOutcome.Status.ALREADY_LIKED : LikeOutcome.Status.NOT_LIKED;
+            }
+        }
+
+        List<LikeOutcome> outcomes = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            outcomes.add(operation == null
+                    ? new LikeOutcome(null, null, null, statuses[i])
+                    : new LikeOutcome(operation.getFilmId(), operation.getUserId(), operation.getAction(),
+                    statuses[i]));
+        }
+        log.info("Batch of {} like operations received. Applied: {}", operations.size(), applied);
+        return outcomes;
+    }
+
+    // Getting a list of the most popular movies. A read-write transaction, so it runs on the primary:
+    // PopularResponseCache keeps what it renders from here until the next change, so this must not read
+    // from a lagging replica.
+    @Transactional
     public List<Film> getPopular(int count) {
-        List<Film> allFilms = filmStorage.getAllFilms();
-        List<Film> sorted = allFilms.stream()
-                .sorted((f1, f2) -> Integer.compare(f2.getLikes().size(), f1.getLikes().size()))
-                .limit(count)
-                .toList();
-        log.info("Request for top {} popular films received. Found: {}", count, sorted.size());
-        return sorted;
+        return loadPopular(count, null, null, null);
+    }
+
+    // Getting the most popular movies of a genre, MPA rating and/or release year (null - any)
+    @Transactional(readOnly = true)
+    public List<Film> getPopular(int count, Integer genreId, Integer mpaId, Integer year) {
+        return loadPopular(count, genreId, mpaId, year);
+    }
+
+    // Versions and like counts of the filtered top N for a conditional GET, in the order of the index
+    @Transactional(readOnly = true)
+    public List<FilmStamp> getPopularStamps(int count, Integer genreId, Integer mpaId, Integer year) {
+        return MultiGet.inOrder(popularityIndex.top(count, genreId, mpaId, year), filmStorage::getFilmStamps,
+                FilmStamp::id);
+    }
+
+    // The ids come from the popularity index, only the films that are returned are loaded, with one query and
+    // in the order of the index; concurrent identical requests share one load
+    private List<Film> loadPopular(int count, Integer genreId, Integer mpaId, Integer year) {
+        List<Film> popular = coalesce(popularReads, new PopularQuery(count, genreId, mpaId, year), () ->
+                MultiGet.inOrder(popularityIndex.top(count, genreId, mpaId, year), filmStorage::getFilmsByIds,
+                        Film::getId));
+        log.info("Request for top {} popular films received (genre={}, mpa={}, year={}). Found: {}",
+                count, genreId, mpaId, year, popular.size());
+        return popular;
+    }
+
+    // Coalescing counters of GET /films/{id}
+    public SingleFlight<Integer, Optional<Film>> getFilmReads() {
+        return filmReads;
+    }
+
+    // Coalescing counters of GET /films/popular
+    public SingleFlight<PopularQuery, List<Film>> getPopularReads() {
+        return popularReads;
+    }
+
+    // Key of a popular films request
+    public record PopularQuery(int count, Integer genreId, Integer mpaId, Integer year) {
+    }
+
+    // A read pinned to the primary by ReadYourWrites loads by itself: the read in flight may come from a replica
+    // that has not got the client's last write yet
+    private <K, V> V coalesce(SingleFlight<K, V> reads, K key, Supplier<V> loader) {
+        if (readYourWrites != null && readYourWrites.isPinned()) {
+            return loader.get();
+        }
+        return reads.load(key, loader);
+    }
+
+    // The index and the listeners see a change once it is committed: a cache dropped before the commit could be
+    // filled again from the old rows. Outside of a transaction (the in-memory storages) the change is seen at once.
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static boolean isComplete(LikeOperation operation) {
+        return operation != null && operation.getFilmId() != null && operation.getUserId() != null &&
+                operation.getAction() != null;
     }
 
     // Validate and replace MPA and genres from services
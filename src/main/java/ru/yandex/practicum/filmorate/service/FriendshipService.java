@@ -1,14 +1,20 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent.Action;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -18,10 +24,13 @@ public class FriendshipService {
 
     private final FriendshipStorage friendshipStorage;
     private final UserStorage userStorage;
+    private final ApplicationEventPublisher events;
 
-    public FriendshipService(FriendshipStorage friendshipStorage, @Qualifier("userDbStorage") UserStorage userStorage) {
+    public FriendshipService(FriendshipStorage friendshipStorage, @Qualifier("userDbStorage") UserStorage userStorage,
+                             ApplicationEventPublisher events) {
         this.friendshipStorage = friendshipStorage;
         this.userStorage = userStorage;
+        this.events = events;
     }
 
     // Add a friend (creates a friend request)
@@ -36,6 +45,7 @@ public class FriendshipService {
 
         Friendship friendship = new Friendship(userId, friendId, false); // false = not confirmed
         friendshipStorage.add(friendship);
+        events.publishEvent(new FriendshipChangedEvent(userId, friendId, Action.ADDED));
     }
 
     // Confirm a friendship request
@@ -52,6 +62,8 @@ public class FriendshipService {
         // Update both directions as confirmed
         friendshipStorage.update(new Friendship(friendId, userId, true));
         friendshipStorage.add(new Friendship(userId, friendId, true));
+        events.publishEvent(new FriendshipChangedEvent(friendId, userId, Action.CONFIRMED));
+        events.publishEvent(new FriendshipChangedEvent(userId, friendId, Action.CONFIRMED));
     }
 
     // Remove a friendship
@@ -61,32 +73,50 @@ public class FriendshipService {
 
         Friendship friendship = new Friendship(userId, friendId, false);
         friendshipStorage.remove(friendship);
+        events.publishEvent(new FriendshipChangedEvent(userId, friendId, Action.REMOVED));
     }
 
-    // Get the list of friends for a user
+    // Get the list of friends for a user, loaded with one query
     public List<User> getFriends(int userId) {
-        List<Friendship> friendships = friendshipStorage.getFriendshipsByUserId(userId);
-        return friendships.stream()
-                .map(f -> userStorage.getUserById(f.getFriendId())
-                        .orElseThrow(() -> new NotFoundException("User not found: " + f.getFriendId())))
-                .toList();
+        return loadUsers(friendIds(userId));
+    }
+
+    // Get the row versions of the friends in the order of getFriends (friend id -> version), without loading them
+    public Map<Integer, Long> getFriendVersions(int userId) {
+        List<Integer> ids = friendIds(userId);
+        Map<Integer, Long> versions = userStorage.getUserVersions(ids);
+        Map<Integer, Long> ordered = new LinkedHashMap<>();
+        for (int id : ids) {
+            Long version = versions.get(id);
+            if (version != null) {
+                ordered.put(id, version);
+            }
+        }
+        return ordered;
     }
 
-    // Get the list of common friends between two users
+    // Get the list of common friends between two users, in the order of the first user's friends
     public List<User> getCommonFriends(int userId, int otherUserId) {
-        Set<Integer> user1FriendIds = friendshipStorage.getFriendshipsByUserId(userId).stream()
-                .map(Friendship::getFriendId)
-                .collect(Collectors.toSet());
+        Set<Integer> otherFriendIds = new HashSet<>(friendIds(otherUserId));
+        return loadUsers(friendIds(userId).stream()
+                .filter(otherFriendIds::contains)
+                .toList());
+    }
 
-        Set<Integer> user2FriendIds = friendshipStorage.getFriendshipsByUserId(otherUserId).stream()
+    private List<Integer> friendIds(int userId) {
+        return friendshipStorage.getFriendshipsByUserId(userId).stream()
                 .map(Friendship::getFriendId)
-                .collect(Collectors.toSet());
-
-        user1FriendIds.retainAll(user2FriendIds); // keep only common IDs
-
-        return user1FriendIds.stream()
-                .map(id -> userStorage.getUserById(id)
-                        .orElseThrow(() -> new NotFoundException("User not found: " + id)))
                 .toList();
     }
+
+    // Every friend must exist, as when they were loaded one by one
+    private List<User> loadUsers(List<Integer> ids) {
+        List<User> users = MultiGet.inOrder(ids, userStorage::getUsersByIds, User::getId);
+        if (users.size() < ids.size()) {
+            Set<Integer> found = users.stream().map(User::getId).collect(Collectors.toSet());
+            int missing = ids.stream().filter(id -> !found.contains(id)).findFirst().orElseThrow();
+            throw new NotFoundException("User not found: " + missing);
+        }
+        return users;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+// Shared part of GET /films?ids= and GET /users?ids=: validation, one bulk load, requested order restored.
+// Lists ranked elsewhere (search, popular, friends) are loaded in bulk the same way with inOrder.
+final class MultiGet {
+    static final int MAX_IDS = 100;
+
+    private MultiGet() {
+    }
+
+    static <T> MultiGetResult<T> load(List<Integer> ids, Function<Collection<Integer>, List<T>> loader,
+                                      ToIntFunction<T> idOf) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ValidationException("At least one id must be given.");
+        }
+        Set<Integer> distinct = new LinkedHashSet<>(ids);
+        if (distinct.contains(null)) {
+            throw new ValidationException("Ids must be numbers.");
+        }
+        if (distinct.size() > MAX_IDS) {
+            throw new ValidationException("At most " + MAX_IDS + " ids can be requested at once.");
+        }
+        Map<Integer, T> found = new HashMap<>();
+        for (T item : loader.apply(distinct)) {
+            found.put(idOf.applyAsInt(item), item);
+        }
+        List<T> items = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (int id : distinct) {
+            T item = found.get(id);
+            if (item == null) {
+                missingIds.add(id);
+            } else {
+                items.add(item);
+            }
+        }
+        return new MultiGetResult<>(items, missingIds);
+    }
+
+    // One bulk load of ids that are already checked, in their order; ids not found are left out
+    static <T> List<T> inOrder(List<Integer> ids, Function<Collection<Integer>, List<T>> loader,
+                               ToIntFunction<T> idOf) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, T> found = new HashMap<>();
+        for (T item : loader.apply(ids)) {
+            found.put(idOf.applyAsInt(item), item);
+        }
+        List<T> items = new ArrayList<>(found.size());
+        for (int id : ids) {
+            T item = found.get(id);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Settings of film recommendations (filmorate.recommendations.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.recommendations")
+public class RecommendationProperties {
+    // Number of most similar users whose likes are turned into recommendations
+    private int neighbours = 20;
+
+    // Films liked by more users than this are not used to find similar users
+    private int popularFilmCutoff = 1000;
+
+    // Largest count a client can ask for; this many recommendations are computed and cached per user
+    private int maxCount = 50;
+
+    // How long a user's recommendations are reused while other users keep liking films
+    private Duration cacheTtl = Duration.ofMinutes(5);
+
+    // Most users whose recommendations are cached; expired ones go first, then the oldest
+    private int cacheSize = 10_000;
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+public class RecommendationService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeMatrix likeMatrix;
+    private final FilmSimilarityIndex similarityIndex;
+    private final RecommendationProperties properties;
+    // user id -> recommended film ids; dropped when the user's own likes change, otherwise expires after the TTL.
+    // Computed inside compute(), so a like of the user waits for a computation in flight and then drops it.
+    private final Map<Integer, CachedRecommendations> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RecommendationService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                                 @Qualifier("userDbStorage") UserStorage userStorage,
+                                 LikeMatrix likeMatrix, FilmSimilarityIndex similarityIndex,
+                                 RecommendationProperties properties) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likeMatrix = likeMatrix;
+        this.similarityIndex = similarityIndex;
+        this.properties = properties;
+    }
+
+    // Films liked by the users with the most similar taste that the user has not liked yet
+    public List<Film> getRecommendations(int userId, int count) {
+        if (count <= 0 || count > properties.getMaxCount()) {
+            throw new ValidationException("Count must be between 1 and " + properties.getMaxCount() + ".");
+        }
+        userStorage.getUserById(userId)
+                .orElseThrow(() -> new NotFoundException("User with id=" + userId + " not found."));
+
+        long now = System.currentTimeMillis();
+        CachedRecommendations cached = cache.compute(userId, (id, current) ->
+                current != null && !isExpired(current, now) ? current : recommend(id, now));
+        if (cache.size() > properties.getCacheSize()) {
+            evict(now);
+        }
+        List<Integer> filmIds = cached.filmIds();
+        List<Film> films = MultiGet.inOrder(filmIds.subList(0, Math.min(count, filmIds.size())),
+                filmStorage::getFilmsByIds, Film::getId);
+        log.info("Recommendations for user with id={}: {} films.", userId, films.size());
+        return films;
+    }
+
+    // Films most often liked by the same users as the given one, from the precomputed neighbours; loaded with
+    // one query, most similar first
+    public List<Film> getSimilarFilms(int filmId, int count) {
+        if (count <= 0 || count > similarityIndex.getTopK()) {
+            throw new ValidationException("Count must be between 1 and " + similarityIndex.getTopK() + ".");
+        }
+        filmStorage.getFilmById(filmId)
+                .orElseThrow(() -> new NotFoundException("Movie with id=" + filmId + " not found."));
+        return MultiGet.inOrder(similarityIndex.similar(filmId, count), filmStorage::getFilmsByIds, Film::getId);
+    }
+
+    // Runs after LikeMatrix has taken the like in, so a computation started after the removal sees it
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onLikeChanged(LikeChangedEvent event) {
+        cache.remove(event.getUserId());
+    }
+
+    // Number of users with cached recommendations
+    int cachedUsers() {
+        return cache.size();
+    }
+
+    private CachedRecommendations recommend(int userId, long now) {
+        return new CachedRecommendations(likeMatrix.recommend(userId, properties.getMaxCount(),
+                properties.getNeighbours(), properties.getPopularFilmCutoff()), now);
+    }
+
+    private boolean isExpired(CachedRecommendations cached, long now) {
+        return now - cached.createdAt() > properties.getCacheTtl().toMillis();
+    }
+
+    // Drops the expired entries and, if that is not enough, the oldest ones down to nine tenths of the limit,
+    // so that a full cache is not sorted on every request
+    private synchronized void evict(long now) {
+        if (cache.size() <= properties.getCacheSize()) {
+            return;
+        }
+        cache.values().removeIf(cached -> isExpired(cached, now));
+        int excess = cache.size() - properties.getCacheSize() * 9 / 10;
+        if (excess > 0) {
+            cache.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().createdAt()))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(cache::remove);
+        }
+    }
+
+    private record CachedRecommendations(List<Integer> filmIds, long createdAt) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Coalesces concurrent identical reads: the first caller for a key runs the load, callers arriving while it
+// is in flight wait for its result (or its exception) instead of loading the same data again.
+// A caller waits at most `timeout` and then loads by itself, so one stuck load cannot hold up every reader.
+// Nothing is cached: a call that starts after the load has finished runs a new one.
+public class SingleFlight<K, V> {
+    private final long timeoutMillis;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public SingleFlight(long timeout, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        calls.increment();
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, own);
+        if (leader == null) {
+            try {
+                return run(loader, own);
+            } finally {
+                inFlight.remove(key, own);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return leader.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return run(loader, new CompletableFuture<>());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a concurrent load of " + key, e);
+        }
+    }
+
+    // ___________Metrics___________
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    // Loads actually run, including the ones run after a timed out wait
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    // Calls that joined a load already in flight
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    private V run(Supplier<V> loader, CompletableFuture<V> result) {
+        loads.increment();
+        try {
+            V value = loader.get();
+            result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            failures.increment();
+            result.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
\ No newline at end of file
@@ -3,12 +3,17 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.event.UserChangedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import java.util.List;
+import java.util.Map;
 
 import static ru.yandex.practicum.filmorate.validator.UserValidator.validate;
 
@@ -17,11 +22,14 @@ import static ru.yandex.practicum.filmorate.validator.UserValidator.validate;
 public class UserService {
     private final UserStorage userStorage;
     private final FriendshipService friendshipService;
+    private final ApplicationEventPublisher events;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, FriendshipService friendshipService) {
+    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, FriendshipService friendshipService,
+                       ApplicationEventPublisher events) {
         this.userStorage = userStorage;
         this.friendshipService = friendshipService;
+        this.events = events;
     }
 
     //___________User____________
@@ -30,22 +38,23 @@ public class UserService {
         log.info("Received a request to add a new user: {}", user);
         validate(user);
         User createdUser = userStorage.addUser(user);
+        events.publishEvent(new UserChangedEvent(createdUser, true));
         log.info("User added successfully: {}", createdUser);
         return createdUser;
     }
 
-    // Updating an existing user by id
+    // Updating an existing user by id; the storage tells a missing user (404) from a stale version (409)
     public User updateUser(User user) {
         log.info("Received a request to update user: {}", user);
         validate(user);
-        userStorage.getUserById(user.getId())
-                .orElseThrow(() -> new NotFoundException("User with id=" + user.getId() + " not found."));
         User updatedUser = userStorage.updateUser(user);
+        events.publishEvent(new UserChangedEvent(updatedUser, false));
         log.info("User with id={} updated successfully.", updatedUser.getId());
         return updatedUser;
     }
 
     // Getting a list of all users
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         List<User> users = userStorage.getAllUsers();
         log.info("Request for list of all users received. Quantity: {}", users.size());
@@ -58,6 +67,15 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("User with id=" + id + " not found."));
     }
 
+    // Getting several users by id with one query; missing ids are reported, not failed on
+    @Transactional(readOnly = true)
+    public MultiGetResult<User> getUsersByIds(List<Integer> ids) {
+        MultiGetResult<User> result = MultiGet.load(ids, userStorage::getUsersByIds, User::getId);
+        log.info("Request for {} users by id. Found: {}, missing: {}", ids.size(), result.getItems().size(),
+                result.getMissingIds());
+        return result;
+    }
+
     //_________Friends_________
     // Adding a new friend
     public void addFriend(int userId, int friendId) {
@@ -83,6 +101,7 @@ public class UserService {
     }
 
     // Getting a list of friends
+    @Transactional(readOnly = true)
     public List<User> getFriends(int userId) {
         User user = userStorage.getUserById(userId)
                 .orElseThrow(() -> new NotFoundException("User with id=" + userId + " not found."));
@@ -92,7 +111,17 @@ public class UserService {
         return friends;
     }
 
+    // Getting the row versions of the friends for a conditional GET (friend id -> version, in the list order)
+    @Transactional(readOnly = true)
+    public Map<Integer, Long> getFriendVersions(int userId) {
+        if (userStorage.getUserVersions(List.of(userId)).isEmpty()) {
+            throw new NotFoundException("User with id=" + userId + " not found.");
+        }
+        return friendshipService.getFriendVersions(userId);
+    }
+
     // Getting a list of common friends
+    @Transactional(readOnly = true)
     public List<User> getCommonFriends(int userId, int otherId) {
         User user = userStorage.getUserById(userId)
                 .orElseThrow(() -> new NotFoundException("User with id=" + userId + " not found."));
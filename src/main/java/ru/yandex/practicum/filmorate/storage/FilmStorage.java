@@ -1,9 +1,15 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmStamp;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 public interface FilmStorage {
     Film addFilm(Film film);
@@ -14,7 +20,32 @@ public interface FilmStorage {
 
     List<Film> getAllFilms();
 
+    List<Film> getFilmsByIds(Collection<Integer> ids); // the films that exist, in no particular order
+
+    // Version and like count of the films that exist, in no particular order; a storage that keeps the films
+    // in memory just loads them
+    default List<FilmStamp> getFilmStamps(Collection<Integer> ids) {
+        return getFilmsByIds(ids).stream().map(FilmStamp::of).toList();
+    }
+
     void addLike(int filmId, int userId);
 
     void removeLike(int filmId, int userId);
+
+    Set<Integer> findFilmIds(Collection<Integer> ids); // the given ids that belong to existing films
+
+    boolean[] applyLikes(List<LikeOperation> operations); // in order; true where the like was added or removed
+
+    Map<Integer, Integer> getLikeCounts(); // film id -> number of likes
+
+    List<Film> getFilmFacets(); // films with only id, release date, MPA id and genre ids filled
+
+    List<Film> getFilmTexts(); // films with only id, name and description filled
+
+    void forEachLike(BiConsumer<Integer, Integer> consumer); // every like as (film id, user id)
+
+    // Waits for the likes this thread changed inside a transaction, where a storage may not wait for them
+    // without holding a connection; called after the transaction
+    default void awaitLikeWrites() {
+    }
 }
\ No newline at end of file
@@ -13,4 +13,6 @@ public interface FriendshipStorage {
     void remove(Friendship friendship);           // Delete
 
     List<Friendship> getFriendshipsByUserId(int userId); // Read
+
+    List<Integer> getFollowerIds(int userId); // ids of the users who have the user as a friend
 }
\ No newline at end of file
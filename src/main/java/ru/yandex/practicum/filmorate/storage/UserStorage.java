@@ -2,8 +2,12 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public interface UserStorage {
     User addUser(User user);
@@ -13,4 +17,14 @@ public interface UserStorage {
     Optional<User> getUserById(int id);
 
     List<User> getAllUsers();
+
+    List<User> getUsersByIds(Collection<Integer> ids); // the users that exist, in no particular order
+
+    // id -> row version of the users that exist; a storage that keeps the users in memory just loads them
+    default Map<Integer, Long> getUserVersions(Collection<Integer> ids) {
+        return getUsersByIds(ids).stream()
+                .collect(Collectors.toMap(User::getId, user -> user.getVersion() == null ? 0 : user.getVersion()));
+    }
+
+    Set<Integer> findUserIds(Collection<Integer> ids); // the given ids that belong to existing users
 }
\ No newline at end of file
@@ -1,26 +1,40 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @Component("filmDbStorage")
-@RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
-
     private final JdbcTemplate jdbcTemplate;
+    private final LikeStore likeStore; // film_likes of the main database unless filmorate.likes.shards.enabled=true
+    private final LikeWriteBehindBuffer likeBuffer; // null unless filmorate.likes.write-behind.enabled=true
+    private final FilmReadModel readModel; // what film reads are served from
+
+    @Autowired
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, ObjectProvider<LikeWriteBehindBuffer> likeBuffer,
+                         ObjectProvider<ShardedLikeStore> shardedLikes) {
+        this.jdbcTemplate = jdbcTemplate;
+        ShardedLikeStore sharded = shardedLikes.getIfAvailable();
+        this.likeStore = sharded != null ? sharded : new JdbcLikeStore(jdbcTemplate);
+        this.likeBuffer = likeBuffer.getIfAvailable();
+        this.readModel = new FilmReadModel(jdbcTemplate, likeStore, this.likeBuffer);
+    }
 
     // Adding a new film
     @Override
@@ -42,117 +56,242 @@ public class FilmDbStorage implements FilmStorage {
         film.setId(filmId);
 
         updateFilmGenres(film); // Save genres
+        readModel.filmChanged(filmId);
         return getFilmById(filmId).orElseThrow(() -> new NotFoundException("Film not found after creation."));
     }
 
-    // Updating an existing film
+    // Updating an existing film with one statement: FINAL TABLE returns the new version from the UPDATE itself.
+    // With a version from the client the update is a compare-and-set. Only when nothing was written is it checked
+    // whether the film is missing or was changed by someone else. The result is the written state (MPA and genres
+    // as resolved by the caller) plus the likes, not a re-read.
     @Override
     public Film updateFilm(Film film) {
-        String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? WHERE id = ?";
-
-        int rows = jdbcTemplate.update(sql,
-                film.getName(),
-                film.getDescription(),
-                film.getReleaseDate(),
-                film.getDuration(),
-                film.getMpa().getId(),
-                film.getId());
-
-        if (rows == 0) {
-            throw new NotFoundException("Film with id=" + film.getId() + " not found.");
+        String sql = "SELECT version FROM FINAL TABLE (UPDATE films SET name = ?, description = ?, " +
+                "release_date = ?, duration = ?, mpa_id = ?, version = version + 1 WHERE id = ?" +
+                (film.getVersion() == null ? ")" : " AND version = ?)");
+        Object[] args = {film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+                film.getMpa().getId(), film.getId(), film.getVersion()};
+        List<Long> versions = jdbcTemplate.queryForList(sql, Long.class,
+                film.getVersion() == null ? Arrays.copyOf(args, args.length - 1) : args);
+        if (versions.isEmpty()) {
+            throw updateMiss(film);
         }
 
         jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", film.getId());
         updateFilmGenres(film); // Update genres
-        return getFilmById(film.getId()).orElseThrow(() -> new NotFoundException("Film not found after update."));
+        readModel.filmChanged(film.getId());
+        film.setVersion(versions.get(0));
+        if (film.getGenres() == null) {
+            film.setGenres(new LinkedHashSet<>());
+        }
+        film.setLikes(getLikesByFilmId(film.getId()));
+        return film;
     }
 
-    // Getting film by ID
+    // Getting film by ID: one primary-key read of the read model
     @Override
     public Optional<Film> getFilmById(int id) {
-        String sql = "SELECT * FROM films WHERE id = ?";
-        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> mapRowToFilm(rs), id);
-        return films.stream().findFirst();
+        return readModel.find(id);
     }
 
     // Getting all films
     @Override
     public List<Film> getAllFilms() {
-        String sql = "SELECT * FROM films ORDER BY id";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> mapRowToFilm(rs));
+        return readModel.findAll();
     }
 
-    // Adding a like to a film
+    // Getting several films with one IN-list query on the read model
     @Override
-    public void addLike(int filmId, int userId) {
-        String sql = "SELECT COUNT(*) FROM film_likes WHERE film_id = ? AND user_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, filmId, userId);
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        return readModel.findByIds(ids);
+    }
 
-        if (count > 0) {
-            throw new ValidationException("User with id=" + userId + " has already liked film with id=" + filmId);
+    // Version and like count from the read model alone, with the likes the buffer has not written yet
+    @Override
+    public List<FilmStamp> getFilmStamps(Collection<Integer> ids) {
+        List<FilmStamp> stamps = readModel.stamps(ids);
+        if (likeBuffer == null) {
+            return stamps;
         }
+        Map<Integer, Integer> counts = new HashMap<>();
+        stamps.forEach(stamp -> counts.put(stamp.id(), stamp.likeCount()));
+        likeBuffer.overlay(counts);
+        return stamps.stream()
+                .map(stamp -> new FilmStamp(stamp.id(), stamp.version(), counts.get(stamp.id())))
+                .toList();
+    }
 
-        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+    // Adding a like to a film and moving the like count of the read model; the buffer moves the counts when it
+    // flushes. The count moves first: a failed like write rolls it back with the caller's transaction. A shard
+    // write is not part of that transaction, so it is not atomic with the count; see FilmReadModel.likeCounts.
+    @Override
+    public void addLike(int filmId, int userId) {
+        if (likeBuffer != null) {
+            likeBuffer.like(filmId, userId);
+            return;
+        }
+        if (likeStore.contains(filmId, userId)) {
+            throw new ValidationException("User with id=" + userId + " has already liked film with id=" + filmId);
+        }
+        readModel.likesChanged(filmId, 1);
+        likeStore.add(filmId, userId);
     }
 
     // Removing a like from a film
     @Override
     public void removeLike(int filmId, int userId) {
-        String checkSql = "SELECT COUNT(*) FROM film_likes WHERE film_id = ? AND user_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, filmId, userId);
-
-        if (count == 0) {
+        if (likeBuffer != null) {
+            likeBuffer.unlike(filmId, userId);
+            return;
+        }
+        if (!likeStore.contains(filmId, userId)) {
             throw new NotFoundException("Like not found: filmId=" + filmId + ", userId=" + userId);
         }
+        readModel.likesChanged(filmId, -1);
+        likeStore.remove(filmId, userId);
+    }
 
-        jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+    // With a GROUP_COMMIT buffer, the likes changed inside FilmService's transaction wait for their batch here
+    @Override
+    public void awaitLikeWrites() {
+        if (likeBuffer != null) {
+            likeBuffer.awaitDeferred();
+        }
     }
 
-    // Mapping film directly from current ResultSet
-    private Film mapRowToFilm(ResultSet rs) throws SQLException {
-        int filmId = rs.getInt("id");
+    // Checking which of the given films exist with one IN-list query
+    @Override
+    public Set<Integer> findFilmIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        String sql = "SELECT id FROM films WHERE id IN (" + placeholders(ids.size()) + ")";
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, ids.toArray()));
+    }
 
-        Film film = new Film();
-        film.setId(filmId);
-        film.setName(rs.getString("name"));
-        film.setDescription(rs.getString("description"));
-        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
-        film.setDuration(rs.getInt("duration"));
-        film.setMpa(getMpaById(rs.getInt("mpa_id")));
-        film.setGenres(new HashSet<>(getGenresByFilmId(filmId)));
-        film.setLikes(getLikesByFilmId(filmId));
+    // Applying likes and unlikes in the given order as JDBC batches (see JdbcLikeStore); the like counts of the
+    // changed films are moved with one more batch
+    @Override
+    public boolean[] applyLikes(List<LikeOperation> operations) {
+        boolean[] changed = new boolean[operations.size()];
+        if (likeBuffer != null) {
+            for (int i = 0; i < operations.size(); i++) {
+                changed[i] = applyBuffered(operations.get(i));
+            }
+            return changed;
+        }
+        changed = likeStore.apply(operations);
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < changed.length; i++) {
+            if (changed[i]) {
+                LikeOperation operation = operations.get(i);
+                deltas.merge(operation.getFilmId(), operation.getAction() == LikeOperation.Action.LIKE ? 1 : -1,
+                        Integer::sum);
+            }
+        }
+        readModel.likesChanged(deltas);
+        return changed;
+    }
 
-        return film;
+    // Getting like counts of all films from the read model, with the changes still in the buffer
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        Map<Integer, Integer> counts = readModel.likeCounts();
+        return likeBuffer == null ? counts : likeBuffer.overlay(counts);
     }
 
-    // Saving genres to film_genres table
+    // Getting the attributes popular films are filtered by (release date, MPA, genres) with a single query
+    @Override
+    public List<Film> getFilmFacets() {
+        String sql = "SELECT f.id, f.release_date, f.mpa_id, fg.genre_id FROM films f " +
+                "LEFT JOIN film_genres fg ON f.id = fg.film_id ORDER BY f.id";
+        Map<Integer, Film> films = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            int filmId = rs.getInt("id");
+            Film film = films.get(filmId);
+            if (film == null) {
+                film = new Film();
+                film.setId(filmId);
+                film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+                int mpaId = rs.getInt("mpa_id");
+                film.setMpa(rs.wasNull() ? null : new MpaRating(mpaId, null));
+                films.put(filmId, film);
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                film.getGenres().add(new Genre(genreId, null));
+            }
+        });
+        return new ArrayList<>(films.values());
+    }
+
+    // Getting names and descriptions of all films for the search index
+    @Override
+    public List<Film> getFilmTexts() {
+        String sql = "SELECT id, name, description FROM films ORDER BY id";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Film film = new Film();
+            film.setId(rs.getInt("id"));
+            film.setName(rs.getString("name"));
+            film.setDescription(rs.getString("description"));
+            return film;
+        });
+    }
+
+    // Streaming every like without collecting them; likes still in the write-behind buffer are flushed first
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        if (likeBuffer != null) {
+            likeBuffer.flush();
+        }
+        likeStore.forEach(consumer);
+    }
+
+    // The write-behind buffer validates against its own view of the likes
+    private boolean applyBuffered(LikeOperation operation) {
+        try {
+            if (operation.getAction() == LikeOperation.Action.LIKE) {
+                likeBuffer.like(operation.getFilmId(), operation.getUserId());
+            } else {
+                likeBuffer.unlike(operation.getFilmId(), operation.getUserId());
+            }
+            return true;
+        } catch (ValidationException | NotFoundException e) {
+            return false;
+        }
+    }
+
+    // "?, ?, ?" for an IN list of the given size
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // Saving genres to film_genres table in one batch
     private void updateFilmGenres(Film film) {
         Set<Genre> genres = film.getGenres();
-        if (genres == null) return;
+        if (genres == null || genres.isEmpty()) return;
 
+        List<Object[]> rows = new ArrayList<>();
         for (Genre genre : genres) {
-            jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
-                    film.getId(), genre.getId());
+            rows.add(new Object[]{film.getId(), genre.getId()});
         }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", rows);
     }
 
-    // Getting genres of a film
-    private List<Genre> getGenresByFilmId(int filmId) {
-        String sql = "SELECT g.id, g.name FROM genres g JOIN film_genres fg ON g.id = fg.genre_id WHERE fg.film_id = ?";
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new Genre(rs.getInt("id"), rs.getString("name")), filmId);
-    }
-
-    // Getting MPA rating by ID
-    private MpaRating getMpaById(int mpaId) {
-        String sql = "SELECT * FROM mpa_ratings WHERE id = ?";
-        return jdbcTemplate.queryForObject(sql, (rs, rowNum) ->
-                new MpaRating(rs.getInt("id"), rs.getString("name")), mpaId);
+    // Telling a missing film from a stale version, once the update has written nothing
+    private RuntimeException updateMiss(Film film) {
+        List<Long> current = jdbcTemplate.queryForList("SELECT version FROM films WHERE id = ?", Long.class,
+                film.getId());
+        if (current.isEmpty()) {
+            return new NotFoundException("Movie with id=" + film.getId() + " not found.");
+        }
+        return new ConflictException("Movie with id=" + film.getId() + " was changed by someone else: version " +
+                current.get(0) + ", expected " + film.getVersion() + ".");
     }
 
     // Getting likes of a film
     private Set<Integer> getLikesByFilmId(int filmId) {
-        String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
-        return new HashSet<>(jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("user_id"), filmId));
+        Set<Integer> likes = likeStore.likesOf(filmId);
+        return likeBuffer == null ? likes : likeBuffer.overlay(filmId, likes);
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmStamp;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// film_read_model: one row per film with the columns a read returns, so films are read by primary key without
+// joins. Written by FilmDbStorage in the same call as the change: the film columns are copied from films,
+// mpa_ratings and genres with one MERGE, like_count is moved by the likes added and removed. The like ids are
+// not copied: they are read from the like store by film id, one query for a film or a list of films.
+// With shards the like is written outside the main transaction: a like whose main commit failed stays on the
+// shard without its count, so there every count is checked against the shards on the first read of the counts.
+@Slf4j
+public class FilmReadModel {
+    private static final String REFRESH_FILM = "MERGE INTO film_read_model (film_id, name, description, " +
+            "release_date, duration, mpa_id, mpa_name, genres, version) KEY (film_id) " +
+            "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_id, m.name, " +
+            "COALESCE((SELECT LISTAGG(g.id || ':' || g.name, '|') WITHIN GROUP (ORDER BY g.id) " +
+            "FROM film_genres fg JOIN genres g ON g.id = fg.genre_id WHERE fg.film_id = f.id), ''), f.version " +
+            "FROM films f LEFT JOIN mpa_ratings m ON m.id = f.mpa_id WHERE f.id = ?";
+    private static final String ADD_LIKES = "UPDATE film_read_model SET like_count = like_count + ? " +
+            "WHERE film_id = ?";
+    private static final String COLUMNS = "film_id, name, description, release_date, duration, mpa_id, mpa_name, " +
+            "genres, version";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LikeStore likeStore;
+    private final LikeWriteBehindBuffer likeBuffer; // null unless filmorate.likes.write-behind.enabled=true
+    private final AtomicBoolean recount; // true until the counts have been checked against the shards
+
+    public FilmReadModel(JdbcTemplate jdbcTemplate, LikeStore likeStore, LikeWriteBehindBuffer likeBuffer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.likeStore = likeStore;
+        this.likeBuffer = likeBuffer;
+        this.recount = new AtomicBoolean(likeStore instanceof ShardedLikeStore);
+    }
+
+    // ___________Writes___________
+    // Copying the film columns after an insert or update of the film or its genres; the like count stays as it is
+    public void filmChanged(int filmId) {
+        jdbcTemplate.update(REFRESH_FILM, filmId);
+    }
+
+    // Moving the like count of a film by the likes added (or, negative, removed)
+    public void likesChanged(int filmId, int delta) {
+        jdbcTemplate.update(ADD_LIKES, delta, filmId);
+    }
+
+    // The same for several films in one batch (film id -> likes added minus likes removed)
+    public void likesChanged(Map<Integer, Integer> deltas) {
+        List<Object[]> rows = new ArrayList<>();
+        deltas.forEach((filmId, delta) -> {
+            if (delta != 0) {
+                rows.add(new Object[]{delta, filmId});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_LIKES, rows);
+        }
+    }
+
+    // ___________Reads___________
+    public Optional<Film> find(int filmId) {
+        List<Film> films = jdbcTemplate.query("SELECT " + COLUMNS + " FROM film_read_model WHERE film_id = ?",
+                (rs, rowNum) -> mapRow(rs), filmId);
+        films.forEach(film -> film.setLikes(overlay(film.getId(), likeStore.likesOf(film.getId()))));
+        return films.stream().findFirst();
+    }
+
+    // The likes of all films come from one scan of the like store
+    public List<Film> findAll() {
+        List<Film> films = jdbcTemplate.query("SELECT " + COLUMNS + " FROM film_read_model ORDER BY film_id",
+                (rs, rowNum) -> mapRow(rs));
+        Map<Integer, Set<Integer>> likes = new HashMap<>();
+        likeStore.forEach((filmId, userId) -> likes.computeIfAbsent(filmId, id -> new HashSet<>()).add(userId));
+        return withLikes(films, likes);
+    }
+
+    public List<Film> findByIds(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return List.of();
+        }
+        List<Film> films = jdbcTemplate.query("SELECT " + COLUMNS + " FROM film_read_model WHERE film_id IN (" +
+                placeholders(filmIds.size()) + ")", (rs, rowNum) -> mapRow(rs), filmIds.toArray());
+        return withLikes(films, likeStore.likesOf(films.stream().map(Film::getId).toList()));
+    }
+
+    // Version and like count of the given films as written, without the buffer; -1 - not counted yet
+    public List<FilmStamp> stamps(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT film_id, version, COALESCE(like_count, -1) AS like_count " +
+                        "FROM film_read_model WHERE film_id IN (" + placeholders(filmIds.size()) + ")",
+                (rs, rowNum) -> new FilmStamp(rs.getInt("film_id"), rs.getLong("version"), rs.getInt("like_count")),
+                filmIds.toArray());
+    }
+
+    // Like counts of all films as written, without the buffer. Films the migration could not count, as their
+    // likes may be on shards, have none yet: they are counted in the like store and the counts are stored; with
+    // shards the first call also corrects the counts that differ from the shards. PopularityIndex reads the
+    // counts on startup, before a like can come in, so no like is missed between the count and the write.
+    public Map<Integer, Integer> likeCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        List<Integer> uncounted = new ArrayList<>();
+        jdbcTemplate.query("SELECT film_id, like_count FROM film_read_model", (RowCallbackHandler) rs -> {
+            int count = rs.getInt("like_count");
+            if (rs.wasNull()) {
+                uncounted.add(rs.getInt("film_id"));
+            } else {
+                counts.put(rs.getInt("film_id"), count);
+            }
+        });
+        boolean recountAll = recount.compareAndSet(true, false);
+        if (uncounted.isEmpty() && !recountAll) {
+            return counts;
+        }
+        Map<Integer, Integer> stored = likeStore.countByFilm();
+        List<Object[]> rows = new ArrayList<>();
+        if (recountAll) {
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                int count = stored.getOrDefault(entry.getKey(), 0);
+                if (count != entry.getValue()) {
+                    entry.setValue(count);
+                    rows.add(new Object[]{count, entry.getKey()});
+                }
+            }
+            if (!rows.isEmpty()) {
+                log.warn("{} like counts differed from the shards and were corrected.", rows.size());
+            }
+        }
+        for (int filmId : uncounted) {
+            int count = stored.getOrDefault(filmId, 0);
+            counts.put(filmId, count);
+            rows.add(new Object[]{count, filmId});
+        }
+        jdbcTemplate.batchUpdate("UPDATE film_read_model SET like_count = ? WHERE film_id = ?", rows);
+        return counts;
+    }
+
+    private Film mapRow(ResultSet rs) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("film_id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        int mpaId = rs.getInt("mpa_id");
+        film.setMpa(rs.wasNull() ? null : new MpaRating(mpaId, rs.getString("mpa_name")));
+        film.setGenres(parseGenres(rs.getString("genres")));
+        film.setVersion(rs.getLong("version"));
+        return film;
+    }
+
+    // The buffer is laid over the stored likes, so reads see the changes not written yet
+    private List<Film> withLikes(List<Film> films, Map<Integer, Set<Integer>> likes) {
+        for (Film film : films) {
+            film.setLikes(overlay(film.getId(), likes.getOrDefault(film.getId(), new HashSet<>())));
+        }
+        return films;
+    }
+
+    private Set<Integer> overlay(int filmId, Set<Integer> likes) {
+        return likeBuffer == null ? likes : likeBuffer.overlay(filmId, likes);
+    }
+
+    // "id:name|id:name"
+    private static Set<Genre> parseGenres(String genres) {
+        Set<Genre> parsed = new LinkedHashSet<>();
+        if (genres.isEmpty()) {
+            return parsed;
+        }
+        for (String genre : genres.split("\\|")) {
+            int colon = genre.indexOf(':');
+            parsed.add(new Genre(Integer.parseInt(genre.substring(0, colon)), genre.substring(colon + 1)));
+        }
+        return parsed;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
\ No newline at end of file
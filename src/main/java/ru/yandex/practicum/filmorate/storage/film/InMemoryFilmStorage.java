@@ -1,37 +1,86 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.Journal;
+import ru.yandex.practicum.filmorate.storage.journal.JournaledStorage;
+import ru.yandex.practicum.filmorate.storage.journal.RecordReader;
+import ru.yandex.practicum.filmorate.storage.journal.RecordWriter;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotWriter;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournals;
+import ru.yandex.practicum.filmorate.storage.journal.StorageRecords;
 
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 import static ru.yandex.practicum.filmorate.validator.FilmValidator.validateFilm;
 
 @Component
-public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
+public class InMemoryFilmStorage implements FilmStorage, JournaledStorage {
+    // Journal record types
+    private static final int FILM_PUT = 1;
+    private static final int LIKE_ADD = 2;
+    private static final int LIKE_REMOVE = 3;
+
+    private final Map<Integer, Film> films = new ConcurrentHashMap<>();
+    private final Journal journal; // null - nothing is persisted
     private int nextId = 1;
 
+    public InMemoryFilmStorage() {
+        this.journal = null;
+    }
+
+    // Restores the films from the journal when filmorate.storage.journal.enabled=true
+    @Autowired
+    public InMemoryFilmStorage(ObjectProvider<StorageJournals> journals) {
+        StorageJournals available = journals.getIfAvailable();
+        this.journal = available == null ? null : available.open("films", this);
+    }
+
     // Adding a new movie
     @Override
     public Film addFilm(Film film) {
         validateFilm(film);
-        film.setId(nextId++);
-        films.put(film.getId(), film);
+        long lsn;
+        synchronized (this) {
+            film.setId(nextId++);
+            film.setVersion(0L);
+            films.put(film.getId(), film);
+            lsn = log(FILM_PUT, film);
+        }
+        commit(lsn);
         return film;
     }
 
     // Updating an existing movie by id
     @Override
     public Film updateFilm(Film film) {
-        if (!films.containsKey(film.getId())) {
-            throw new NotFoundException("Film with id=" + film.getId() + " not found.");
+        long lsn;
+        synchronized (this) {
+            Film current = films.get(film.getId());
+            if (current == null) {
+                throw new NotFoundException("Movie with id=" + film.getId() + " not found.");
+            }
+            long version = current.getVersion() == null ? 0 : current.getVersion();
+            if (film.getVersion() != null && film.getVersion() != version) {
+                throw new ConflictException("Movie with id=" + film.getId() + " was changed by someone else: " +
+                        "version " + version + ", expected " + film.getVersion() + ".");
+            }
+            film.setVersion(version + 1);
+            films.put(film.getId(), film);
+            lsn = log(FILM_PUT, film);
         }
-        films.put(film.getId(), film);
+        commit(lsn);
         return film;
     }
 
@@ -47,32 +96,214 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        List<Film> result = new ArrayList<>();
+        for (int id : ids) {
+            getFilmById(id).ifPresent(result::add);
+        }
+        return result;
+    }
+
     // __________Likes_____________
     // Adding like
     @Override
     public void addLike(int filmId, int userId) {
-        getFilmById(filmId).ifPresentOrElse(
-                film -> {
-                    if (film.getLikes().contains(userId)) {
-                        throw new ValidationException("User with id=" + userId +
-                                " has already liked film with id=" + filmId);
+        long lsn;
+        synchronized (this) {
+            getFilmById(filmId).ifPresentOrElse(
+                    film -> {
+                        if (film.getLikes().contains(userId)) {
+                            throw new ValidationException("User with id=" + userId +
+                                    " has already liked film with id=" + filmId);
+                        }
+                        film.getLikes().add(userId);
+                    },
+                    () -> {
+                        throw new NotFoundException("Film with id=" + filmId + " not found.");
                     }
-                    film.getLikes().add(userId);
-                },
-                () -> {
-                    throw new NotFoundException("Film with id=" + filmId + " not found.");
-                }
-        );
+            );
+            lsn = log(LIKE_ADD, filmId, userId);
+        }
+        commit(lsn);
     }
 
     // Removing like
     @Override
     public void removeLike(int filmId, int userId) {
-        getFilmById(filmId).ifPresentOrElse(
-                film -> film.getLikes().remove(userId),
-                () -> {
-                    throw new NotFoundException("Film with id=" + filmId + " not found.");
+        long lsn;
+        synchronized (this) {
+            getFilmById(filmId).ifPresentOrElse(
+                    film -> film.getLikes().remove(userId),
+                    () -> {
+                        throw new NotFoundException("Film with id=" + filmId + " not found.");
+                    }
+            );
+            lsn = log(LIKE_REMOVE, filmId, userId);
+        }
+        commit(lsn);
+    }
+
+    @Override
+    public Set<Integer> findFilmIds(Collection<Integer> ids) {
+        Set<Integer> result = new HashSet<>();
+        for (int id : ids) {
+            if (films.containsKey(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    // Applying likes and unlikes in order under one lock; an operation that changes nothing is skipped.
+    // Every change is appended to the journal, and the batch waits once, for the last record, after the lock
+    // is released.
+    @Override
+    public boolean[] applyLikes(List<LikeOperation> operations) {
+        boolean[] changed = new boolean[operations.size()];
+        long lsn = 0;
+        synchronized (this) {
+            for (int i = 0; i < operations.size(); i++) {
+                LikeOperation operation = operations.get(i);
+                Film film = films.get(operation.getFilmId());
+                if (film == null) {
+                    continue;
+                }
+                boolean like = operation.getAction() == LikeOperation.Action.LIKE;
+                changed[i] = like
+                        ? film.getLikes().add(operation.getUserId())
+                        : film.getLikes().remove(operation.getUserId());
+                if (changed[i]) {
+                    lsn = log(like ? LIKE_ADD : LIKE_REMOVE, operation.getFilmId(), operation.getUserId());
                 }
-        );
+            }
+        }
+        commit(lsn);
+        return changed;
+    }
+
+    // Getting like counts of all movies
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        films.forEach((id, film) -> counts.put(id, film.getLikes().size()));
+        return counts;
+    }
+
+    // Getting the attributes popular films are filtered by
+    @Override
+    public List<Film> getFilmFacets() {
+        List<Film> facets = new ArrayList<>(films.size());
+        for (Film film : films.values()) {
+            Film facet = new Film();
+            facet.setId(film.getId());
+            facet.setReleaseDate(film.getReleaseDate());
+            facet.setMpa(film.getMpa());
+            facet.setGenres(film.getGenres() == null ? new LinkedHashSet<>() : new LinkedHashSet<>(film.getGenres()));
+            facets.add(facet);
+        }
+        return facets;
+    }
+
+    // Getting names and descriptions of all films
+    @Override
+    public List<Film> getFilmTexts() {
+        List<Film> texts = new ArrayList<>(films.size());
+        for (Film film : films.values()) {
+            Film text = new Film();
+            text.setId(film.getId());
+            text.setName(film.getName());
+            text.setDescription(film.getDescription());
+            texts.add(text);
+        }
+        return texts;
+    }
+
+    // Passing every like to the consumer; likes change under this lock
+    @Override
+    public synchronized void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        for (Film film : films.values()) {
+            for (int userId : film.getLikes()) {
+                consumer.accept(film.getId(), userId);
+            }
+        }
+    }
+
+    // __________Journal_____________
+    // Replays one journal record
+    @Override
+    public synchronized void apply(int type, RecordReader record) {
+        switch (type) {
+            case FILM_PUT -> {
+                Film film = StorageRecords.readFilm(record);
+                films.put(film.getId(), film);
+                nextId = Math.max(nextId, film.getId() + 1);
+            }
+            case LIKE_ADD -> {
+                Film film = films.get(record.readInt());
+                int userId = record.readInt();
+                if (film != null) {
+                    film.getLikes().add(userId);
+                }
+            }
+            case LIKE_REMOVE -> {
+                Film film = films.get(record.readInt());
+                int userId = record.readInt();
+                if (film != null) {
+                    film.getLikes().remove(userId);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown film journal record type: " + type);
+        }
+    }
+
+    // Writes the films one by one; the lock is only held while a film (and its likes) is copied
+    @Override
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        for (Film film : films.values()) {
+            synchronized (this) {
+                StorageRecords.writeFilm(out.record(), film);
+            }
+            out.endRecord();
+        }
+    }
+
+    @Override
+    public synchronized void loadSnapshot(RecordReader in) {
+        while (in.hasRemaining()) {
+            Film film = StorageRecords.readFilm(in);
+            films.put(film.getId(), film);
+            nextId = Math.max(nextId, film.getId() + 1);
+        }
+    }
+
+    private long log(int type, Film film) {
+        if (journal == null) {
+            return 0;
+        }
+        RecordWriter record = new RecordWriter(128);
+        StorageRecords.writeFilm(record, film);
+        return append(type, record);
+    }
+
+    private long log(int type, int filmId, int userId) {
+        if (journal == null) {
+            return 0;
+        }
+        return append(type, new RecordWriter(8).writeInt(filmId).writeInt(userId));
+    }
+
+    private long append(int type, RecordWriter record) {
+        try {
+            return journal.append(type, record.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the film journal", e);
+        }
+    }
+
+    private void commit(long lsn) {
+        if (journal != null) {
+            journal.commit(lsn);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+// film_likes of one database: the main one, or one shard of ShardedLikeStore
+public class JdbcLikeStore implements LikeStore {
+    // Inserts only a missing like, so its update count tells whether the like was new
+    private static final String MERGE_LIKE = "MERGE INTO film_likes l " +
+            "USING (VALUES (CAST(? AS INT), CAST(? AS INT))) AS s (film_id, user_id) " +
+            "ON l.film_id = s.film_id AND l.user_id = s.user_id " +
+            "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (s.film_id, s.user_id)";
+    private static final String DELETE_LIKE = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactions;
+
+    // On the main database a transaction of the caller is joined, it is bound to the same DataSource
+    public JdbcLikeStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactions = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    }
+
+    @Override
+    public boolean contains(int filmId, int userId) {
+        String sql = "SELECT COUNT(*) FROM film_likes WHERE film_id = ? AND user_id = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, filmId, userId);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public void add(int filmId, int userId) {
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+    }
+
+    @Override
+    public void remove(int filmId, int userId) {
+        jdbcTemplate.update(DELETE_LIKE, filmId, userId);
+    }
+
+    // Applying likes and unlikes in the given order as JDBC batches, one batch per run of the same action, all in
+    // one transaction. The update counts tell which operations changed anything, so there is no COUNT pre-check.
+    @Override
+    public boolean[] apply(List<LikeOperation> operations) {
+        return transactions.execute(status -> applyRuns(operations));
+    }
+
+    private boolean[] applyRuns(List<LikeOperation> operations) {
+        boolean[] changed = new boolean[operations.size()];
+        int start = 0;
+        while (start < operations.size()) {
+            LikeOperation.Action action = operations.get(start).getAction();
+            int end = start;
+            while (end < operations.size() && operations.get(end).getAction() == action) {
+                end++;
+            }
+            List<LikeOperation> run = operations.subList(start, end);
+            boolean like = action == LikeOperation.Action.LIKE;
+            int[] counts = jdbcTemplate.batchUpdate(like ? MERGE_LIKE : DELETE_LIKE,
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            LikeOperation operation = run.get(i);
+                            ps.setInt(1, operation.getFilmId());
+                            ps.setInt(2, operation.getUserId());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return run.size();
+                        }
+                    });
+            for (int i = 0; i < counts.length; i++) {
+                changed[start + i] = counts[i] > 0;
+            }
+            start = end;
+        }
+        return changed;
+    }
+
+    // MERGE keeps a retried batch idempotent
+    @Override
+    public void write(List<Object[]> inserts, List<Object[]> deletes) {
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)",
+                    inserts);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_LIKE, deletes);
+        }
+    }
+
+    @Override
+    public Set<Integer> likesOf(int filmId) {
+        String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
+        return new HashSet<>(jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("user_id"), filmId));
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> likesOf(Collection<Integer> filmIds) {
+        Map<Integer, Set<Integer>> likes = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return likes;
+        }
+        String sql = "SELECT film_id, user_id FROM film_likes WHERE film_id IN (" +
+                String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ")";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> likes
+                .computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>())
+                .add(rs.getInt("user_id")), filmIds.toArray());
+        return likes;
+    }
+
+    @Override
+    public Map<Integer, Integer> countByFilm() {
+        String sql = "SELECT film_id, COUNT(*) AS likes FROM film_likes GROUP BY film_id";
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> counts.put(rs.getInt("film_id"), rs.getInt("likes")));
+        return counts;
+    }
+
+    @Override
+    public void forEach(BiConsumer<Integer, Integer> consumer) {
+        jdbcTemplate.query("SELECT film_id, user_id FROM film_likes", (RowCallbackHandler) rs ->
+                consumer.accept(rs.getInt("film_id"), rs.getInt("user_id")));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Settings of the write-behind like buffer (filmorate.likes.write-behind.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.likes.write-behind")
+public class LikeBufferProperties {
+    // Off by default: every like is written synchronously
+    private boolean enabled = false;
+
+    // A flush starts as soon as this many changes are waiting...
+    private int batchSize = 500;
+
+    // ...or when this much time has passed since the previous one
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    private Durability durability = Durability.ASYNC;
+
+    // How long a GROUP_COMMIT caller waits for its batch before a change not yet being written is taken back (503)
+    private Duration commitTimeout = Duration.ofSeconds(5);
+
+    public enum Durability {
+        ASYNC,       // acknowledged at once; changes of the last flush interval are lost if the process dies
+        GROUP_COMMIT // acknowledged after the batch containing the change has been written
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Databases film_likes is split across (filmorate.likes.shards.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.likes.shards")
+public class LikeShardProperties {
+    private boolean enabled = false;
+
+    // JDBC URLs of the shards; driver, user name and password are those of spring.datasource.
+    // A film's shard depends on the number of URLs, so changing it requires moving the likes.
+    private List<String> urls = new ArrayList<>();
+}
\ No newline at end of file
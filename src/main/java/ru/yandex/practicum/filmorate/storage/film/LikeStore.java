@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+// Where the rows of film_likes live: the main database (JdbcLikeStore) or shards picked by film id
+// (ShardedLikeStore). Existence of the films and users is checked by the callers.
+public interface LikeStore {
+    boolean contains(int filmId, int userId);
+
+    void add(int filmId, int userId);
+
+    void remove(int filmId, int userId);
+
+    boolean[] apply(List<LikeOperation> operations); // in order; true where the like was added or removed
+
+    void write(List<Object[]> inserts, List<Object[]> deletes); // idempotent batches of {film id, user id}
+
+    Set<Integer> likesOf(int filmId);
+
+    Map<Integer, Set<Integer>> likesOf(Collection<Integer> filmIds); // only films with likes
+
+    Map<Integer, Integer> countByFilm(); // only films with likes
+
+    void forEach(BiConsumer<Integer, Integer> consumer); // every like as (film id, user id)
+}
\ No newline at end of file
@@ -0,0 +1,414 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Accepts likes and unlikes in memory and writes them to film_likes (or its shards) in JDBC batches.
+// Changes are validated in memory against the latest known state (pending -> being written -> stored),
+// a like followed by an unlike of the same film cancels out, and reads see pending changes.
+// The stored likes of a film are read once, outside the stripe monitor, and then kept in step by the flushes;
+// they are dropped once a flush goes by without a change of the film, and read again on its next change.
+// Every change in a batch is a real change of the stored likes, so a flush also moves the like counts of the
+// read model by the batch.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "filmorate.likes.write-behind", name = "enabled", havingValue = "true")
+public class LikeWriteBehindBuffer {
+    private static final int STRIPES = 64;
+    private static final Boolean INSERT = Boolean.TRUE;
+    private static final Boolean DELETE = Boolean.FALSE;
+
+    private final LikeStore likeStore;
+    private final FilmReadModel readModel; // only its like counts are written from here
+    private final LikeBufferProperties properties;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "like-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object[] stripes = new Object[STRIPES];
+
+    // film id -> (user id -> INSERT / DELETE)
+    private final Map<Integer, Map<Integer, Boolean>> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<Integer, Boolean>> inFlight = new ConcurrentHashMap<>();
+    // film id -> user ids in the database, for the films recently changed through the buffer
+    private final Map<Integer, Set<Integer>> stored = new ConcurrentHashMap<>();
+    private final long[] stripeWrites = new long[STRIPES]; // guarded by the stripe; moves when a flush changes stored
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private volatile CompletableFuture<Void> nextFlush = new CompletableFuture<>();
+    private volatile CompletableFuture<Void> writing = CompletableFuture.completedFuture(null); // batch in flight
+    // GROUP_COMMIT waits of changes recorded inside a transaction, run by awaitDeferred after it
+    private final ThreadLocal<List<Runnable>> deferred = ThreadLocal.withInitial(ArrayList::new);
+
+    public LikeWriteBehindBuffer(JdbcTemplate jdbcTemplate, LikeBufferProperties properties,
+                                 ObjectProvider<ShardedLikeStore> shardedLikes) {
+        ShardedLikeStore sharded = shardedLikes.getIfAvailable();
+        this.likeStore = sharded != null ? sharded : new JdbcLikeStore(jdbcTemplate);
+        this.readModel = new FilmReadModel(jdbcTemplate, likeStore, null);
+        this.properties = properties;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // ___________Writes___________
+    public void like(int filmId, int userId) {
+        change(filmId, userId, INSERT);
+        afterRecord(filmId, userId, INSERT);
+    }
+
+    public void unlike(int filmId, int userId) {
+        change(filmId, userId, DELETE);
+        afterRecord(filmId, userId, DELETE);
+    }
+
+    // ___________Reads (read-your-writes)___________
+    // Applies changes that are not in the database yet to the likes of a film
+    public Set<Integer> overlay(int filmId, Set<Integer> likes) {
+        synchronized (stripe(filmId)) {
+            apply(inFlight.get(filmId), likes);
+            apply(pending.get(filmId), likes);
+        }
+        return likes;
+    }
+
+    // Applies changes that are not in the database yet to like counts (film id -> likes)
+    public Map<Integer, Integer> overlay(Map<Integer, Integer> counts) {
+        List<Integer> filmIds = new ArrayList<>(inFlight.keySet());
+        filmIds.addAll(pending.keySet());
+        for (int filmId : filmIds.stream().distinct().toList()) {
+            if (!counts.containsKey(filmId)) {
+                continue;
+            }
+            synchronized (stripe(filmId)) {
+                int delta = delta(inFlight.get(filmId)) + delta(pending.get(filmId));
+                counts.merge(filmId, delta, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    // ___________Flushing___________
+    // Writes everything that is pending; called by the timer, on a full batch and on shutdown
+    public synchronized void flush() {
+        CompletableFuture<Void> completed = nextFlush;
+        nextFlush = new CompletableFuture<>(); // changes recorded from now on wait for the next flush
+        writing = completed;
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (Integer filmId : new ArrayList<>(pending.keySet())) {
+            synchronized (stripe(filmId)) {
+                Map<Integer, Boolean> changes = pending.remove(filmId);
+                if (changes == null) {
+                    continue;
+                }
+                pendingCount.addAndGet(-changes.size());
+                inFlight.put(filmId, changes);
+                changes.forEach((userId, op) -> (op ? inserts : deletes).add(new Object[]{filmId, userId}));
+                deltas.put(filmId, delta(changes));
+            }
+        }
+
+        try {
+            likeStore.write(inserts, deletes); // idempotent, so a failed batch can be retried
+            readModel.likesChanged(deltas); // last: when it fails, the batch is retried as a whole
+            clearInFlight(false);
+            evictIdle(deltas.keySet());
+            completed.complete(null);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} like changes, they will be retried: {}",
+                    inserts.size() + deletes.size(), e.getMessage());
+            clearInFlight(true);
+            completed.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Writes out the remaining changes before the application context goes away
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(properties.getCommitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        for (int attempt = 1; attempt <= 3 && !pending.isEmpty(); attempt++) {
+            flushQuietly();
+        }
+        if (pendingCount.get() > 0) {
+            log.error("{} like changes could not be written before shutdown.", pendingCount.get());
+        } else {
+            log.info("Like buffer drained.");
+        }
+    }
+
+    // ___________Private helpers___________
+    private Object stripe(int filmId) {
+        return stripes[stripeIndex(filmId)];
+    }
+
+    private static int stripeIndex(int filmId) {
+        return Math.floorMod(filmId, STRIPES);
+    }
+
+    // Checks and records a change under the stripe monitor; the stored likes may be dropped between the load
+    // and the monitor, then they are loaded again
+    private void change(int filmId, int userId, Boolean op) {
+        while (true) {
+            loadStored(filmId);
+            synchronized (stripe(filmId)) {
+                if (!stored.containsKey(filmId)) {
+                    continue;
+                }
+                boolean liked = isLiked(filmId, userId);
+                if (op && liked) {
+                    throw new ValidationException("User with id=" + userId + " has already liked film with id=" +
+                            filmId);
+                }
+                if (!op && !liked) {
+                    throw new NotFoundException("Like not found: filmId=" + filmId + ", userId=" + userId);
+                }
+                record(filmId, userId, op);
+                return;
+            }
+        }
+    }
+
+    // Drops the stored likes of the films that had no change in the flushed batch and have none waiting
+    private void evictIdle(Set<Integer> flushedFilms) {
+        for (Integer filmId : new ArrayList<>(stored.keySet())) {
+            if (flushedFilms.contains(filmId)) {
+                continue;
+            }
+            synchronized (stripe(filmId)) {
+                if (!pending.containsKey(filmId) && !inFlight.containsKey(filmId)) {
+                    stored.remove(filmId);
+                }
+            }
+        }
+    }
+
+    // The query runs without the monitor; if a flush of the same stripe finished meanwhile, it is repeated
+    private void loadStored(int filmId) {
+        while (!stored.containsKey(filmId)) {
+            long seen;
+            synchronized (stripe(filmId)) {
+                seen = stripeWrites[stripeIndex(filmId)];
+            }
+            Set<Integer> likes = ConcurrentHashMap.newKeySet();
+            likes.addAll(likeStore.likesOf(filmId));
+            synchronized (stripe(filmId)) {
+                if (stripeWrites[stripeIndex(filmId)] == seen) {
+                    stored.putIfAbsent(filmId, likes);
+                }
+            }
+        }
+    }
+
+    // The latest known state: pending change, then change being written, then the stored likes
+    private boolean isLiked(int filmId, int userId) {
+        Boolean op = find(pending, filmId, userId);
+        if (op == null) {
+            op = find(inFlight, filmId, userId);
+        }
+        if (op != null) {
+            return op;
+        }
+        return stored.get(filmId).contains(userId);
+    }
+
+    // An opposite pending change is cancelled instead of being written twice
+    private void record(int filmId, int userId, Boolean op) {
+        Map<Integer, Boolean> changes = pending.computeIfAbsent(filmId, id -> new ConcurrentHashMap<>());
+        Boolean previous = changes.remove(userId);
+        if (previous == null) {
+            changes.put(userId, op);
+            pendingCount.incrementAndGet();
+        } else {
+            pendingCount.decrementAndGet();
+            if (changes.isEmpty()) {
+                pending.remove(filmId);
+            }
+        }
+    }
+
+    private void afterRecord(int filmId, int userId, Boolean op) {
+        CompletableFuture<Void> flushed = nextFlush;
+        if (pendingCount.get() >= properties.getBatchSize()) {
+            flusher.execute(this::flushQuietly);
+        }
+        if (properties.getDurability() != LikeBufferProperties.Durability.GROUP_COMMIT) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            awaitFlush(flushed, filmId, userId, op);
+            return;
+        }
+        // Waiting here would keep the transaction's pooled connection for up to the commit timeout
+        List<Runnable> waits = deferred.get();
+        if (waits.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        deferred.remove(); // the request fails anyway
+                    }
+                }
+            });
+        }
+        waits.add(() -> awaitFlush(flushed, filmId, userId, op));
+    }
+
+    // Runs the waits deferred by the changes this thread recorded inside a transaction, after it has ended.
+    // Every change is waited for; the first failure is thrown at the end.
+    public void awaitDeferred() {
+        List<Runnable> waits = deferred.get();
+        deferred.remove();
+        RuntimeException failure = null;
+        for (Runnable wait : waits) {
+            try {
+                wait.run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // A GROUP_COMMIT caller is answered only with the outcome of the write. When the time is up, a change that
+    // is still pending (or came back after a failed write) is taken back and the request fails, so a failed
+    // request leaves nothing behind; a change that is being written waits for the result of its batch.
+    private void awaitFlush(CompletableFuture<Void> flushed, int filmId, int userId, Boolean op) {
+        try {
+            flushed.get(properties.getCommitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // decided below
+        }
+        while (true) {
+            CompletableFuture<Void> batch;
+            synchronized (stripe(filmId)) {
+                if (flushed.isDone() && !flushed.isCompletedExceptionally()) {
+                    return;
+                }
+                if (op.equals(find(pending, filmId, userId))) {
+                    Map<Integer, Boolean> changes = pending.get(filmId);
+                    changes.remove(userId);
+                    pendingCount.decrementAndGet();
+                    if (changes.isEmpty()) {
+                        pending.remove(filmId);
+                    }
+                    throw new ServiceUnavailableException("The like change could not be written and was " +
+                            "not applied: filmId=" + filmId + ", userId=" + userId);
+                }
+                if (!op.equals(find(inFlight, filmId, userId))) {
+                    return; // written on a retry, or replaced by a newer change of the same like
+                }
+                batch = writing;
+            }
+            if (batch.handle((ignored, failure) -> failure).join() == null) {
+                return;
+            }
+        }
+    }
+
+    // After a written batch the stored likes follow it; after a failed one the changes go back to pending.
+    // A newer change of the same like is the opposite one, and the two cancel out as in record().
+    private void clearInFlight(boolean failed) {
+        for (Integer filmId : new ArrayList<>(inFlight.keySet())) {
+            synchronized (stripe(filmId)) {
+                Map<Integer, Boolean> changes = inFlight.remove(filmId);
+                if (!failed && changes != null) {
+                    stripeWrites[stripeIndex(filmId)]++;
+                    apply(changes, stored.get(filmId));
+                }
+                if (failed && changes != null) {
+                    Map<Integer, Boolean> current = pending.computeIfAbsent(filmId, id -> new ConcurrentHashMap<>());
+                    changes.forEach((userId, op) -> {
+                        if (current.remove(userId) == null) {
+                            current.put(userId, op);
+                            pendingCount.incrementAndGet();
+                        } else {
+                            pendingCount.decrementAndGet();
+                        }
+                    });
+                    if (current.isEmpty()) {
+                        pending.remove(filmId);
+                    }
+                }
+            }
+        }
+    }
+
+    // Films whose stored likes are kept
+    Set<Integer> storedFilms() {
+        return Set.copyOf(stored.keySet());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ignore) {
+            // already logged, the changes stay pending until the next attempt
+        }
+    }
+
+    private static Boolean find(Map<Integer, Map<Integer, Boolean>> changes, int filmId, int userId) {
+        Map<Integer, Boolean> filmChanges = changes.get(filmId);
+        return filmChanges == null ? null : filmChanges.get(userId);
+    }
+
+    private static void apply(Map<Integer, Boolean> changes, Set<Integer> likes) {
+        if (changes == null || likes == null) {
+            return;
+        }
+        changes.forEach((userId, op) -> {
+            if (op) {
+                likes.add(userId);
+            } else {
+                likes.remove(userId);
+            }
+        });
+    }
+
+    private static int delta(Map<Integer, Boolean> changes) {
+        if (changes == null) {
+            return 0;
+        }
+        int delta = 0;
+        for (Boolean op : changes.values()) {
+            delta += op ? 1 : -1;
+        }
+        return delta;
+    }
+}
\ No newline at end of file
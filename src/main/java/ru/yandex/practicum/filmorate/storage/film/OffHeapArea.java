@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Growable area of direct (off-heap) memory. Space is handed out at the end; what an update gives up is only
+// counted as garbage, OffHeapFilmStorage copies the live data to a fresh area once there is enough of it.
+final class OffHeapArea {
+    private ByteBuffer buffer;
+    private int end;
+    private long garbage;
+
+    OffHeapArea(int capacity) {
+        this.buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    // Offset of a new block of the given size
+    int allocate(int bytes) {
+        ensureCapacity((long) end + bytes);
+        int offset = end;
+        end += bytes;
+        return offset;
+    }
+
+    void release(int bytes) {
+        garbage += bytes;
+    }
+
+    // Absolute reads and writes only: the position of the buffer is never used
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    int size() {
+        return end;
+    }
+
+    long garbage() {
+        return garbage;
+    }
+
+    // The buffer is replaced by one twice as large, so callers must not keep it across an allocation
+    void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap area is full: " + required + " bytes requested");
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity()));
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        grown.put(0, buffer, 0, end);
+        buffer = grown;
+    }
+}
\ No newline at end of file
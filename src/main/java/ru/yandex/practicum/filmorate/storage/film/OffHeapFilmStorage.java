@@ -0,0 +1,556 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+import static ru.yandex.practicum.filmorate.validator.FilmValidator.validateFilm;
+
+// Film catalog kept outside the Java heap, so a large catalog is a few direct buffers instead of millions of
+// small objects for the GC to trace. A film is a fixed-width record (slot = id - 1) in one area; names and
+// descriptions are UTF-8 bytes in a string area, genre ids and like user ids are packed int arrays in an int
+// area, both referenced from the record by offset. Film objects are only built when a film is returned;
+// like counts, facets and likes are read from the records directly. MPA and genre names are reference data
+// and stay on the heap as small dictionaries.
+@Component
+public class OffHeapFilmStorage implements FilmStorage {
+    // Record layout, byte offsets
+    private static final int ID = 0;              // int, 0 - free slot
+    private static final int DURATION = 4;        // int
+    private static final int RELEASE_DATE = 8;    // long epoch day
+    private static final int VERSION = 16;        // long
+    private static final int MPA_ID = 24;         // int
+    private static final int NAME = 28;           // int offset + int length in the string area, length -1 - null
+    private static final int DESCRIPTION = 36;    // same as NAME
+    private static final int GENRES = 44;         // int offset + int count in the int area
+    private static final int LIKES = 52;          // int offset + int count + int capacity, ids sorted
+    private static final int RECORD_SIZE = 64;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_MPA = -1;
+    private static final int MIN_LIKE_CAPACITY = 4;
+    // The string area is compacted when at least half of it, and at least this much, is garbage; the int area
+    // at a third, as a like array that doubles leaves behind half of what it takes and never gets to a half
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 1 << 20;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long compactionThreshold;
+    private final OffHeapArea records = new OffHeapArea(RECORD_SIZE * 1024);
+    private OffHeapArea strings = new OffHeapArea(64 * 1024);
+    private OffHeapArea ints = new OffHeapArea(16 * 1024);
+    private final Map<Integer, String> mpaNames = new HashMap<>();
+    private final Map<Integer, String> genreNames = new HashMap<>();
+    private int nextId = 1;
+    private int filmCount;
+
+    public OffHeapFilmStorage() {
+        this(DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    OffHeapFilmStorage(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    // Adding a new movie
+    @Override
+    public Film addFilm(Film film) {
+        validateFilm(film);
+        lock.writeLock().lock();
+        try {
+            int id = nextId++;
+            records.allocate(RECORD_SIZE);
+            int record = offset(id);
+            records.buffer().putInt(record + ID, id);
+            records.buffer().putLong(record + VERSION, 0);
+            putLikes(record, 0, 0, 0);
+            writeFields(record, film);
+            filmCount++;
+            return view(record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Updating an existing movie by id; the likes stay as they are, as in the database
+    @Override
+    public Film updateFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            int record = find(film.getId());
+            if (record < 0) {
+                throw new NotFoundException("Movie with id=" + film.getId() + " not found.");
+            }
+            long version = records.buffer().getLong(record + VERSION);
+            if (film.getVersion() != null && film.getVersion() != version) {
+                throw new ConflictException("Movie with id=" + film.getId() + " was changed by someone else: " +
+                        "version " + version + ", expected " + film.getVersion() + ".");
+            }
+            releaseString(record + NAME);
+            releaseString(record + DESCRIPTION);
+            ints.release(records.buffer().getInt(record + GENRES + 4) * Integer.BYTES);
+            writeFields(record, film);
+            records.buffer().putLong(record + VERSION, version + 1);
+            compactIfNeeded();
+            return view(record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Getting a movie by id
+    @Override
+    public Optional<Film> getFilmById(int id) {
+        lock.readLock().lock();
+        try {
+            int record = find(id);
+            return record < 0 ? Optional.empty() : Optional.of(view(record));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Getting a list of all movies
+    @Override
+    public List<Film> getAllFilms() {
+        lock.readLock().lock();
+        try {
+            List<Film> films = new ArrayList<>(filmCount);
+            for (int id = 1; id < nextId; id++) {
+                int record = find(id);
+                if (record >= 0) {
+                    films.add(view(record));
+                }
+            }
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        lock.readLock().lock();
+        try {
+            List<Film> films = new ArrayList<>();
+            for (int id : ids) {
+                int record = find(id);
+                if (record >= 0) {
+                    films.add(view(record));
+                }
+            }
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // __________Likes_____________
+    // Adding like
+    @Override
+    public void addLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            int record = existing(filmId);
+            if (!insertLike(record, userId)) {
+                throw new ValidationException("User with id=" + userId + " has already liked film with id=" + filmId);
+            }
+            compactIfNeeded(); // a grown like array leaves the old one behind
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Removing like
+    @Override
+    public void removeLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            deleteLike(existing(filmId), userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Integer> findFilmIds(Collection<Integer> ids) {
+        lock.readLock().lock();
+        try {
+            Set<Integer> result = new HashSet<>();
+            for (int id : ids) {
+                if (find(id) >= 0) {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Applying likes and unlikes one by one under one lock; an operation that changes nothing is skipped
+    @Override
+    public boolean[] applyLikes(List<LikeOperation> operations) {
+        boolean[] changed = new boolean[operations.size()];
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                LikeOperation operation = operations.get(i);
+                int record = find(operation.getFilmId());
+                if (record < 0) {
+                    continue;
+                }
+                changed[i] = operation.getAction() == LikeOperation.Action.LIKE
+                        ? insertLike(record, operation.getUserId())
+                        : deleteLike(record, operation.getUserId());
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return changed;
+    }
+
+    // Getting like counts of all movies straight from the records
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> counts = new HashMap<>(filmCount * 2);
+            for (int id = 1; id < nextId; id++) {
+                int record = find(id);
+                if (record >= 0) {
+                    counts.put(id, records.buffer().getInt(record + LIKES + 4));
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Getting the attributes popular films are filtered by, without the strings and the likes
+    @Override
+    public List<Film> getFilmFacets() {
+        lock.readLock().lock();
+        try {
+            List<Film> facets = new ArrayList<>(filmCount);
+            for (int id = 1; id < nextId; id++) {
+                int record = find(id);
+                if (record < 0) {
+                    continue;
+                }
+                Film facet = new Film();
+                facet.setId(id);
+                facet.setReleaseDate(readDate(record));
+                int mpaId = records.buffer().getInt(record + MPA_ID);
+                facet.setMpa(mpaId == NO_MPA ? null : new MpaRating(mpaId, null));
+                int genres = records.buffer().getInt(record + GENRES);
+                int genreCount = records.buffer().getInt(record + GENRES + 4);
+                for (int i = 0; i < genreCount; i++) {
+                    facet.getGenres().add(new Genre(ints.buffer().getInt(genres + i * Integer.BYTES), null));
+                }
+                facets.add(facet);
+            }
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Getting names and descriptions of all films
+    @Override
+    public List<Film> getFilmTexts() {
+        lock.readLock().lock();
+        try {
+            List<Film> texts = new ArrayList<>(filmCount);
+            for (int id = 1; id < nextId; id++) {
+                int record = find(id);
+                if (record < 0) {
+                    continue;
+                }
+                Film text = new Film();
+                text.setId(id);
+                text.setName(readString(record + NAME));
+                text.setDescription(readString(record + DESCRIPTION));
+                texts.add(text);
+            }
+            return texts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Passing every like to the consumer straight from the int area
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        lock.readLock().lock();
+        try {
+            for (int id = 1; id < nextId; id++) {
+                int record = find(id);
+                if (record < 0) {
+                    continue;
+                }
+                int likes = records.buffer().getInt(record + LIKES);
+                int count = records.buffer().getInt(record + LIKES + 4);
+                for (int i = 0; i < count; i++) {
+                    consumer.accept(id, ints.buffer().getInt(likes + i * Integer.BYTES));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bytes of direct memory taken by the three areas
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) records.buffer().capacity() + strings.buffer().capacity() + ints.buffer().capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bytes of the string and int areas given up and not compacted yet
+    long getGarbageBytes() {
+        lock.readLock().lock();
+        try {
+            return strings.garbage() + ints.garbage();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // __________Records_____________
+    private static int offset(int id) {
+        return (id - 1) * RECORD_SIZE;
+    }
+
+    // Offset of the film's record, -1 if there is no such film
+    private int find(int id) {
+        if (id < 1 || id >= nextId) {
+            return -1;
+        }
+        int record = offset(id);
+        return records.buffer().getInt(record + ID) == id ? record : -1;
+    }
+
+    private int existing(int filmId) {
+        int record = find(filmId);
+        if (record < 0) {
+            throw new NotFoundException("Film with id=" + filmId + " not found.");
+        }
+        return record;
+    }
+
+    // Writing everything but the id, the version and the likes
+    private void writeFields(int record, Film film) {
+        writeString(record + NAME, film.getName());
+        writeString(record + DESCRIPTION, film.getDescription());
+        ByteBuffer buffer = records.buffer();
+        buffer.putLong(record + RELEASE_DATE, film.getReleaseDate() == null ? NO_DATE :
+                film.getReleaseDate().toEpochDay());
+        buffer.putInt(record + DURATION, film.getDuration());
+        if (film.getMpa() == null) {
+            buffer.putInt(record + MPA_ID, NO_MPA);
+        } else {
+            buffer.putInt(record + MPA_ID, film.getMpa().getId());
+            remember(mpaNames, film.getMpa().getId(), film.getMpa().getName());
+        }
+        Set<Genre> genres = film.getGenres() == null ? Set.of() : film.getGenres();
+        int offset = ints.allocate(genres.size() * Integer.BYTES);
+        int i = 0;
+        for (Genre genre : genres) {
+            ints.buffer().putInt(offset + i++ * Integer.BYTES, genre.getId());
+            remember(genreNames, genre.getId(), genre.getName());
+        }
+        buffer.putInt(record + GENRES, offset);
+        buffer.putInt(record + GENRES + 4, genres.size());
+    }
+
+    // The Film a caller gets: a copy of the record, changes to it do not reach the storage
+    private Film view(int record) {
+        ByteBuffer buffer = records.buffer();
+        Film film = new Film();
+        film.setId(buffer.getInt(record + ID));
+        film.setName(readString(record + NAME));
+        film.setDescription(readString(record + DESCRIPTION));
+        film.setReleaseDate(readDate(record));
+        film.setDuration(buffer.getInt(record + DURATION));
+        int mpaId = buffer.getInt(record + MPA_ID);
+        film.setMpa(mpaId == NO_MPA ? null : new MpaRating(mpaId, mpaNames.get(mpaId)));
+        int genres = buffer.getInt(record + GENRES);
+        int genreCount = buffer.getInt(record + GENRES + 4);
+        for (int i = 0; i < genreCount; i++) {
+            int genreId = ints.buffer().getInt(genres + i * Integer.BYTES);
+            film.getGenres().add(new Genre(genreId, genreNames.get(genreId)));
+        }
+        int likes = buffer.getInt(record + LIKES);
+        int likeCount = buffer.getInt(record + LIKES + 4);
+        Set<Integer> likeSet = new HashSet<>(likeCount * 2);
+        for (int i = 0; i < likeCount; i++) {
+            likeSet.add(ints.buffer().getInt(likes + i * Integer.BYTES));
+        }
+        film.setLikes(likeSet);
+        film.setVersion(buffer.getLong(record + VERSION));
+        return film;
+    }
+
+    private LocalDate readDate(int record) {
+        long epochDay = records.buffer().getLong(record + RELEASE_DATE);
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    // Names come with the films the service has resolved them for; a film without them keeps the known ones
+    private static void remember(Map<Integer, String> names, int id, String name) {
+        if (name != null) {
+            names.put(id, name);
+        }
+    }
+
+    // __________Strings_____________
+    private void writeString(int field, String value) {
+        if (value == null) {
+            records.buffer().putInt(field, 0);
+            records.buffer().putInt(field + 4, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int offset = strings.allocate(bytes.length);
+        strings.buffer().put(offset, bytes);
+        records.buffer().putInt(field, offset);
+        records.buffer().putInt(field + 4, bytes.length);
+    }
+
+    private String readString(int field) {
+        int length = records.buffer().getInt(field + 4);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        strings.buffer().get(records.buffer().getInt(field), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void releaseString(int field) {
+        strings.release(Math.max(0, records.buffer().getInt(field + 4)));
+    }
+
+    // __________Like arrays_____________
+    private void putLikes(int record, int offset, int count, int capacity) {
+        records.buffer().putInt(record + LIKES, offset);
+        records.buffer().putInt(record + LIKES + 4, count);
+        records.buffer().putInt(record + LIKES + 8, capacity);
+    }
+
+    // Binary search in the sorted like array: the index of the user, or -(insertion point) - 1
+    private int searchLike(int record, int userId) {
+        int likes = records.buffer().getInt(record + LIKES);
+        int low = 0;
+        int high = records.buffer().getInt(record + LIKES + 4) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = ints.buffer().getInt(likes + middle * Integer.BYTES);
+            if (value < userId) {
+                low = middle + 1;
+            } else if (value > userId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // False if the user already likes the film. A full array moves to a twice larger block at the end.
+    private boolean insertLike(int record, int userId) {
+        int index = searchLike(record, userId);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        int likes = records.buffer().getInt(record + LIKES);
+        int count = records.buffer().getInt(record + LIKES + 4);
+        int capacity = records.buffer().getInt(record + LIKES + 8);
+        if (count == capacity) {
+            int grown = Math.max(MIN_LIKE_CAPACITY, capacity * 2);
+            int moved = ints.allocate(grown * Integer.BYTES);
+            ints.buffer().put(moved, ints.buffer(), likes, count * Integer.BYTES);
+            ints.release(capacity * Integer.BYTES);
+            likes = moved;
+            capacity = grown;
+        }
+        ByteBuffer buffer = ints.buffer();
+        int at = likes + index * Integer.BYTES;
+        buffer.put(at + Integer.BYTES, buffer, at, (count - index) * Integer.BYTES); // overlapping, moves the tail
+        buffer.putInt(at, userId);
+        putLikes(record, likes, count + 1, capacity);
+        return true;
+    }
+
+    // False if the user does not like the film
+    private boolean deleteLike(int record, int userId) {
+        int index = searchLike(record, userId);
+        if (index < 0) {
+            return false;
+        }
+        int likes = records.buffer().getInt(record + LIKES);
+        int count = records.buffer().getInt(record + LIKES + 4);
+        int at = likes + index * Integer.BYTES;
+        ints.buffer().put(at, ints.buffer(), at + Integer.BYTES, (count - index - 1) * Integer.BYTES);
+        records.buffer().putInt(record + LIKES + 4, count - 1);
+        return true;
+    }
+
+    // __________Compaction_____________
+    // Copies the live strings and int arrays of every film to fresh areas, the old buffers go to the GC
+    private void compactIfNeeded() {
+        boolean compactStrings = strings.garbage() >= compactionThreshold && strings.garbage() * 2 >= strings.size();
+        boolean compactInts = ints.garbage() >= compactionThreshold && ints.garbage() * 3 >= ints.size();
+        if (!compactStrings && !compactInts) {
+            return;
+        }
+        OffHeapArea newStrings = compactStrings ? new OffHeapArea(Math.max(1024, (int) (strings.size() -
+                strings.garbage()))) : strings;
+        OffHeapArea newInts = compactInts ? new OffHeapArea(Math.max(1024, (int) (ints.size() - ints.garbage())))
+                : ints;
+        for (int id = 1; id < nextId; id++) {
+            int record = find(id);
+            if (record < 0) {
+                continue;
+            }
+            if (compactStrings) {
+                move(record + NAME, Math.max(0, records.buffer().getInt(record + NAME + 4)), newStrings, strings);
+                move(record + DESCRIPTION, Math.max(0, records.buffer().getInt(record + DESCRIPTION + 4)),
+                        newStrings, strings);
+            }
+            if (compactInts) {
+                move(record + GENRES, records.buffer().getInt(record + GENRES + 4) * Integer.BYTES, newInts, ints);
+                move(record + LIKES, records.buffer().getInt(record + LIKES + 8) * Integer.BYTES, newInts, ints);
+            }
+        }
+        strings = newStrings;
+        ints = newInts;
+    }
+
+    // Copying the block a field points to into the new area and pointing the field there
+    private void move(int field, int bytes, OffHeapArea to, OffHeapArea from) {
+        int offset = to.allocate(bytes);
+        to.buffer().put(offset, from.buffer(), records.buffer().getInt(field), bytes);
+        records.buffer().putInt(field, offset);
+    }
+}
\ No newline at end of file
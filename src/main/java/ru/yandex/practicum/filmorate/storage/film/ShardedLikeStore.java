@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// film_likes split across several databases by a hash of the film id. All likes of a film are in one shard,
+// so a like touches one database and per-film counts need no summing; reads of the whole table and batches
+// that span shards run on all of them in parallel. The schema of a shard comes from db/shard.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "filmorate.likes.shards", name = "enabled", havingValue = "true")
+public class ShardedLikeStore implements LikeStore {
+    private final List<DataSource> dataSources;
+    private final List<JdbcLikeStore> shards = new ArrayList<>();
+    private final ExecutorService executor;
+
+    @Autowired
+    public ShardedLikeStore(LikeShardProperties properties, DataSourceProperties dataSource,
+                            JdbcTemplate jdbcTemplate) {
+        this(shardDataSources(properties, dataSource, jdbcTemplate));
+    }
+
+    ShardedLikeStore(List<DataSource> dataSources) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalStateException("filmorate.likes.shards.urls must list at least one database.");
+        }
+        this.dataSources = List.copyOf(dataSources);
+        for (DataSource shard : this.dataSources) {
+            Flyway.configure()
+                    .dataSource(shard)
+                    .locations("classpath:db/shard")
+                    .load()
+                    .migrate();
+            shards.add(new JdbcLikeStore(new JdbcTemplate(shard)));
+        }
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "like-shard-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Likes are split across {} shards.", shards.size());
+    }
+
+    // Likes left in the main database would no longer be read once sharding is on, so it refuses to start
+    // over them; they have to be moved to the shards first
+    static void requireNoMainLikes(JdbcTemplate main) {
+        Integer likes = main.queryForObject("SELECT COUNT(*) FROM film_likes", Integer.class);
+        if (likes != null && likes > 0) {
+            throw new IllegalStateException("The main database still has " + likes + " likes in film_likes. " +
+                    "Move them to the shards before setting filmorate.likes.shards.enabled.");
+        }
+    }
+
+    private static List<DataSource> shardDataSources(LikeShardProperties properties, DataSourceProperties dataSource,
+                                                     JdbcTemplate main) {
+        requireNoMainLikes(main);
+        return properties.getUrls().stream()
+                .map(url -> (DataSource) DataSourceBuilder.create()
+                        .driverClassName(dataSource.determineDriverClassName())
+                        .url(url)
+                        .username(dataSource.determineUsername())
+                        .password(dataSource.determinePassword())
+                        .build())
+                .toList();
+    }
+
+    // Fibonacci hashing: the high bits of the product spread consecutive film ids over the shards
+    int shardOf(int filmId) {
+        long hash = (filmId * 0x9E3779B9) & 0xFFFFFFFFL;
+        return (int) ((hash * shards.size()) >>> 32);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // ___________Single film___________
+    @Override
+    public boolean contains(int filmId, int userId) {
+        return shards.get(shardOf(filmId)).contains(filmId, userId);
+    }
+
+    @Override
+    public void add(int filmId, int userId) {
+        shards.get(shardOf(filmId)).add(filmId, userId);
+    }
+
+    @Override
+    public void remove(int filmId, int userId) {
+        shards.get(shardOf(filmId)).remove(filmId, userId);
+    }
+
+    @Override
+    public Set<Integer> likesOf(int filmId) {
+        return shards.get(shardOf(filmId)).likesOf(filmId);
+    }
+
+    // ___________Several shards___________
+    // Each shard gets its operations in the original order and applies them in its own transaction;
+    // operations on one like never span shards
+    @Override
+    public boolean[] apply(List<LikeOperation> operations) {
+        List<List<Integer>> positions = partition(operations.size(), i -> operations.get(i).getFilmId());
+        List<boolean[]> results = onShards(positions, (shard, indices) ->
+                shard.apply(indices.stream().map(operations::get).toList()));
+        boolean[] changed = new boolean[operations.size()];
+        for (int s = 0; s < positions.size(); s++) {
+            List<Integer> indices = positions.get(s);
+            for (int j = 0; j < indices.size(); j++) {
+                changed[indices.get(j)] = results.get(s)[j];
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void write(List<Object[]> inserts, List<Object[]> deletes) {
+        List<List<Integer>> insertPositions = partition(inserts.size(), i -> (Integer) inserts.get(i)[0]);
+        List<List<Integer>> deletePositions = partition(deletes.size(), i -> (Integer) deletes.get(i)[0]);
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int s = 0; s < shards.size(); s++) {
+            JdbcLikeStore shard = shards.get(s);
+            List<Object[]> shardInserts = insertPositions.get(s).stream().map(inserts::get).toList();
+            List<Object[]> shardDeletes = deletePositions.get(s).stream().map(deletes::get).toList();
+            if (!shardInserts.isEmpty() || !shardDeletes.isEmpty()) {
+                writes.add(CompletableFuture.runAsync(() -> shard.write(shardInserts, shardDeletes), executor));
+            }
+        }
+        writes.forEach(ShardedLikeStore::join);
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> likesOf(Collection<Integer> filmIds) {
+        List<Integer> ids = new ArrayList<>(filmIds);
+        List<List<Integer>> positions = partition(ids.size(), ids::get);
+        Map<Integer, Set<Integer>> likes = new HashMap<>();
+        onShards(positions, (shard, indices) -> shard.likesOf(indices.stream().map(ids::get).toList()))
+                .forEach(likes::putAll);
+        return likes;
+    }
+
+    // A film is counted in its own shard only, so the shard counts are just put together
+    @Override
+    public Map<Integer, Integer> countByFilm() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        onAllShards(JdbcLikeStore::countByFilm).forEach(counts::putAll);
+        return counts;
+    }
+
+    // The shards are read in parallel, the consumer is called by one thread at a time
+    @Override
+    public void forEach(BiConsumer<Integer, Integer> consumer) {
+        onAllShards(shard -> {
+            shard.forEach((filmId, userId) -> {
+                synchronized (consumer) {
+                    consumer.accept(filmId, userId);
+                }
+            });
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        executor.shutdownNow();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    // ___________Private helpers___________
+    // Positions of the items that belong to each shard, in their original order
+    private List<List<Integer>> partition(int size, IntFunction<Integer> filmIdAt) {
+        List<List<Integer>> positions = new ArrayList<>();
+        for (int s = 0; s < shards.size(); s++) {
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            positions.get(shardOf(filmIdAt.apply(i))).add(i);
+        }
+        return positions;
+    }
+
+    // Runs the query on the shards that have items, in parallel; shards without items get an empty result
+    private <T> List<T> onShards(List<List<Integer>> positions, BiFunction<JdbcLikeStore, List<Integer>, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int s = 0; s < shards.size(); s++) {
+            JdbcLikeStore shard = shards.get(s);
+            List<Integer> indices = positions.get(s);
+            futures.add(indices.isEmpty()
+                    ? CompletableFuture.completedFuture(query.apply(shard, indices))
+                    : CompletableFuture.supplyAsync(() -> query.apply(shard, indices), executor));
+        }
+        return futures.stream().map(ShardedLikeStore::join).toList();
+    }
+
+    private <T> List<T> onAllShards(Function<JdbcLikeStore, T> query) {
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .toList();
+        return futures.stream().map(ShardedLikeStore::join).toList();
+    }
+
+    // The shard's own exception instead of the CompletionException around it
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
\ No newline at end of file
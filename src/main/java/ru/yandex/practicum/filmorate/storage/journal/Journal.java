@@ -0,0 +1,247 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only log of binary records kept in memory-mapped segment files (<name>-<index>.log).
+// Record layout: length of type + payload (int), type (byte), payload, CRC32 of type and payload (int).
+// A zero length marks the end of the written part of a segment, a bad checksum marks a torn write.
+// Appends only copy bytes into the mapping; a background thread forces them to disk (group commit).
+@Slf4j
+public class Journal implements AutoCloseable {
+    private static final int HEADER_SIZE = 5;
+    private static final int CRC_SIZE = 4;
+
+    private final Path directory;
+    private final String name;
+    private final Pattern segmentPattern;
+    private final int segmentSize;
+    private final boolean syncWrites;
+    private final ScheduledExecutorService syncer;
+    private final Object durableMonitor = new Object();
+
+    private FileChannel channel;      // guarded by this
+    private MappedByteBuffer segment; // guarded by this
+    private int segmentIndex;         // guarded by this
+    private int position;             // guarded by this
+    private volatile long durableLsn;
+
+    public Journal(Path directory, String name, int segmentSize, Duration fsyncInterval, boolean syncWrites)
+            throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-(\\d{8})\\.log");
+        this.segmentSize = segmentSize;
+        this.syncWrites = syncWrites;
+
+        Files.createDirectories(directory);
+        List<Integer> segments = listSegments();
+        openSegment(segments.isEmpty() ? 0 : segments.get(segments.size() - 1));
+        position = findEnd(segment);
+        clearTail();
+        durableLsn = lsn(segmentIndex, position);
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-sync-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, fsyncInterval.toMillis());
+        syncer.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Position right after a record; grows with every append, also across segments
+    public static long lsn(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | offset;
+    }
+
+    // Appends a record and returns its LSN; the record is durable once commit(lsn) returns or the next sync ran
+    public synchronized long append(int type, byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length + CRC_SIZE;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + recordSize + " bytes does not fit a segment.");
+        }
+        if (position + recordSize > segmentSize) {
+            roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        segment.put(position + HEADER_SIZE, payload);
+        segment.putInt(position + HEADER_SIZE + payload.length, (int) crc.getValue());
+        segment.put(position + 4, (byte) type);
+        segment.putInt(position, payload.length + 1); // written last: a record without length is not there
+        position += recordSize;
+        return lsn(segmentIndex, position);
+    }
+
+    // With sync writes enabled, waits until the record with this LSN has been forced to disk
+    public void commit(long lsn) {
+        if (!syncWrites) {
+            return;
+        }
+        synchronized (durableMonitor) {
+            while (durableLsn < lsn) {
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal to be synced.", e);
+                }
+            }
+        }
+    }
+
+    // LSN of the last appended record
+    public synchronized long currentLsn() {
+        return lsn(segmentIndex, position);
+    }
+
+    // Feeds every record written after the given LSN to the handler; returns the number of records replayed
+    public long replay(long afterLsn, RecordHandler handler) throws IOException {
+        long replayed = 0;
+        for (int index : listSegments()) {
+            if (index < (int) (afterLsn >>> 32)) {
+                continue;
+            }
+            try (FileChannel file = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                int offset = 0;
+                int next;
+                while ((next = nextRecord(buffer, offset)) > 0) {
+                    if (lsn(index, next) > afterLsn) {
+                        int length = buffer.getInt(offset) - 1;
+                        byte[] payload = new byte[length];
+                        buffer.get(offset + HEADER_SIZE, payload);
+                        handler.handle(buffer.get(offset + 4), new RecordReader(payload));
+                        replayed++;
+                    }
+                    offset = next;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    // Removes whole segments that only hold records up to the given LSN (they are covered by a snapshot)
+    public void deleteSegmentsBefore(long lsn) throws IOException {
+        int keepFrom = (int) (lsn >>> 32);
+        for (int index : listSegments()) {
+            if (index < keepFrom) {
+                Files.deleteIfExists(segmentPath(index));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        sync();
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    // ___________Private helpers___________
+    private void sync() {
+        MappedByteBuffer current;
+        long lsn;
+        synchronized (this) {
+            current = segment;
+            lsn = lsn(segmentIndex, position);
+        }
+        if (lsn <= durableLsn) {
+            return;
+        }
+        current.force();
+        synchronized (durableMonitor) {
+            durableLsn = lsn;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        channel.close();
+        openSegment(segmentIndex + 1);
+        position = 0;
+    }
+
+    private void openSegment(int index) throws IOException {
+        channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentIndex = index;
+    }
+
+    // After a crash the tail may hold a torn record; it is zeroed so that it cannot be mistaken for data later
+    private void clearTail() {
+        if (position + HEADER_SIZE <= segmentSize && segment.getInt(position) != 0) {
+            log.warn("Journal {} has a torn record in segment {} at offset {}, discarding the tail.",
+                    name, segmentIndex, position);
+            for (int i = position; i < segmentSize; i++) {
+                segment.put(i, (byte) 0);
+            }
+            segment.force();
+        }
+    }
+
+    private int findEnd(MappedByteBuffer buffer) {
+        int offset = 0;
+        int next;
+        while ((next = nextRecord(buffer, offset)) > 0) {
+            offset = next;
+        }
+        return offset;
+    }
+
+    // Offset after a valid record starting at the given offset, or -1 at the end of the written data
+    private static int nextRecord(MappedByteBuffer buffer, int offset) {
+        if (offset + HEADER_SIZE > buffer.limit()) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        int end = offset + 4 + length + CRC_SIZE;
+        if (length <= 0 || end > buffer.limit()) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + 4, length));
+        return (int) crc.getValue() == buffer.getInt(offset + 4 + length) ? end : -1;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s-%08d.log", name, index));
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> segmentPattern.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Integer.parseInt(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Applies one journal record
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(int type, RecordReader payload);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+// Settings of the in-memory storage journal (filmorate.storage.journal.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.storage.journal")
+public class JournalProperties {
+    // Off by default: the in-memory storages keep nothing between restarts
+    private boolean enabled = false;
+
+    private String directory = "./db/journal";
+
+    // Size of one memory-mapped segment file
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    // How often appended records are forced to disk (one fsync covers all writers of the interval)
+    private Duration fsyncInterval = Duration.ofMillis(50);
+
+    // true - a mutation returns only after its record has been forced to disk
+    private boolean syncWrites = false;
+
+    // How often a snapshot of every storage is written in the background (0 - only on shutdown)
+    private Duration snapshotInterval = Duration.ofMinutes(10);
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.IOException;
+
+// In-memory storage whose state is restored from a snapshot plus the journal records written after it.
+// Snapshots are fuzzy (taken while writers keep going), so apply() must be idempotent:
+// records newer than the snapshot LSN are replayed over a state that may already contain some of them.
+public interface JournaledStorage {
+    // Applies one journal record
+    void apply(int type, RecordReader record);
+
+    // Writes every entity; must not hold locks for longer than one entity
+    void writeSnapshot(SnapshotWriter out) throws IOException;
+
+    // Reads the entities written by writeSnapshot
+    void loadSnapshot(RecordReader in);
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Reads values written by RecordWriter
+public class RecordReader {
+    private final ByteBuffer buffer;
+
+    public RecordReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public RecordReader(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    public int readByte() {
+        return buffer.get();
+    }
+
+    // The next byte, left to be read again
+    public int peekByte() {
+        return buffer.get(buffer.position());
+    }
+
+    public boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    public long readLong() {
+        return buffer.getLong();
+    }
+
+    public String readString() {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] encoded = new byte[length];
+        buffer.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Growable big-endian buffer for compact binary records
+public class RecordWriter {
+    private byte[] bytes;
+    private int size;
+
+    public RecordWriter() {
+        this(64);
+    }
+
+    public RecordWriter(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    public RecordWriter writeByte(int value) {
+        ensure(1);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    public RecordWriter writeBoolean(boolean value) {
+        return writeByte(value ? 1 : 0);
+    }
+
+    public RecordWriter writeInt(int value) {
+        ensure(4);
+        bytes[size++] = (byte) (value >>> 24);
+        bytes[size++] = (byte) (value >>> 16);
+        bytes[size++] = (byte) (value >>> 8);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    public RecordWriter writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        return writeInt((int) value);
+    }
+
+    // Length-prefixed UTF-8; length -1 stands for null
+    public RecordWriter writeString(String value) {
+        if (value == null) {
+            return writeInt(-1);
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(encoded.length);
+        ensure(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    // View of the written bytes; valid until the next write
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    // Starts over without giving the memory back
+    public void reset() {
+        size = 0;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
\ No newline at end of file
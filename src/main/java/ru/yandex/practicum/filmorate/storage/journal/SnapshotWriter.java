@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+// Streams snapshot entities to a file in chunks and checksums them on the way
+public class SnapshotWriter {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private final RecordWriter chunk = new RecordWriter(CHUNK_SIZE);
+    private long length;
+
+    SnapshotWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // Buffer for the next entity
+    public RecordWriter record() {
+        return chunk;
+    }
+
+    // Marks the end of an entity; writes the buffer out once it is large enough
+    public void endRecord() throws IOException {
+        if (chunk.size() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    void flush() throws IOException {
+        ByteBuffer bytes = chunk.buffer();
+        crc.update(bytes.duplicate());
+        length += bytes.remaining();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        chunk.reset();
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    int getChecksum() {
+        return (int) crc.getValue();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Snapshot files of one storage (<name>-<journal LSN>.snap).
+// Layout: magic (int), format version (int), journal LSN (long), body length (long), body, CRC32 of the body (int).
+// A snapshot is written to a temporary file and renamed, so a crash never leaves a half-written one behind.
+@Slf4j
+public class Snapshots {
+    private static final int MAGIC = 0x46534e50; // FSNP
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int CRC_SIZE = 4;
+
+    private final Path directory;
+    private final String name;
+    private final Pattern filePattern;
+
+    public Snapshots(Path directory, String name) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.filePattern = Pattern.compile(Pattern.quote(name) + "-([0-9a-f]{16})\\.snap");
+        Files.createDirectories(directory);
+    }
+
+    // Writes the state of the storage as of the given journal LSN
+    public void write(long lsn, JournaledStorage storage) throws IOException {
+        Path temporary = directory.resolve(name + ".snap.tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            file.position(HEADER_SIZE);
+            SnapshotWriter out = new SnapshotWriter(file);
+            storage.writeSnapshot(out);
+            out.flush();
+
+            ByteBuffer trailer = ByteBuffer.allocate(CRC_SIZE).putInt(out.getChecksum()).flip();
+            while (trailer.hasRemaining()) {
+                file.write(trailer);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putLong(lsn).putLong(out.getLength()).flip();
+            while (header.hasRemaining()) {
+                file.write(header, header.position());
+            }
+            file.force(true);
+        }
+        Files.move(temporary, filePath(lsn), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Loads the newest valid snapshot into the storage; returns its LSN, or 0 if there is none
+    public long load(JournaledStorage storage) throws IOException {
+        for (long lsn : listLsns()) {
+            try (FileChannel file = FileChannel.open(filePath(lsn), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                ByteBuffer body = validBody(buffer, lsn);
+                if (body == null) {
+                    log.warn("Snapshot {} of {} is damaged, trying an older one.", Long.toHexString(lsn), name);
+                    continue;
+                }
+                storage.loadSnapshot(new RecordReader(body));
+                return lsn;
+            }
+        }
+        return 0;
+    }
+
+    // Deletes all but the newest snapshots; returns the LSN of the oldest one kept (0 if none)
+    public long retain(int count) throws IOException {
+        List<Long> lsns = listLsns();
+        for (int i = count; i < lsns.size(); i++) {
+            Files.deleteIfExists(filePath(lsns.get(i)));
+        }
+        return lsns.isEmpty() ? 0 : lsns.get(Math.min(count, lsns.size()) - 1);
+    }
+
+    // ___________Private helpers___________
+    private static ByteBuffer validBody(MappedByteBuffer buffer, long lsn) {
+        if (buffer.limit() < HEADER_SIZE + CRC_SIZE
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION
+                || buffer.getLong(8) != lsn) {
+            return null;
+        }
+        long length = buffer.getLong(16);
+        if (length < 0 || HEADER_SIZE + length + CRC_SIZE != buffer.limit()) {
+            return null;
+        }
+        ByteBuffer body = buffer.slice(HEADER_SIZE, (int) length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        return (int) crc.getValue() == buffer.getInt(HEADER_SIZE + (int) length) ? body : null;
+    }
+
+    private Path filePath(long lsn) {
+        return directory.resolve(String.format("%s-%016x.snap", name, lsn));
+    }
+
+    // LSNs of the snapshot files, newest first
+    private List<Long> listLsns() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> filePattern.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseUnsignedLong(matcher.group(1), 16))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Opens one journal per in-memory storage and restores the storage on startup:
+// the newest snapshot is loaded first, then only the journal records written after it are replayed.
+// A background thread periodically writes new snapshots and drops the journal segments they cover.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "filmorate.storage.journal", name = "enabled", havingValue = "true")
+public class StorageJournals {
+    // The previous snapshot is kept as a fallback, so are the journal segments written after it
+    private static final int SNAPSHOTS_TO_KEEP = 2;
+
+    private final JournalProperties properties;
+    private final List<Entry> entries = new ArrayList<>();
+    private final ScheduledExecutorService snapshotter;
+
+    public StorageJournals(JournalProperties properties) {
+        this.properties = properties;
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getSnapshotInterval().toMillis();
+        if (interval > 0) {
+            snapshotter.scheduleWithFixedDelay(this::snapshotAll, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized Journal open(String name, JournaledStorage storage) {
+        try {
+            Path directory = Path.of(properties.getDirectory());
+            Snapshots snapshots = new Snapshots(directory, name);
+            long snapshotLsn = snapshots.load(storage);
+            Journal journal = new Journal(directory, name, (int) properties.getSegmentSize().toBytes(),
+                    properties.getFsyncInterval(), properties.isSyncWrites());
+            long replayed = journal.replay(snapshotLsn, storage::apply);
+            log.info("Journal {} opened from snapshot {}, {} records replayed.",
+                    name, Long.toHexString(snapshotLsn), replayed);
+            entries.add(new Entry(name, storage, journal, snapshots, snapshotLsn));
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open journal " + name, e);
+        }
+    }
+
+    // Writes a snapshot of every storage that changed since its last one
+    public synchronized void snapshotAll() {
+        for (Entry entry : entries) {
+            try {
+                snapshot(entry);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to write a snapshot of {}: {}", entry.name, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        snapshotter.shutdownNow();
+        snapshotAll();
+        for (Entry entry : entries) {
+            try {
+                entry.journal.close();
+            } catch (IOException e) {
+                log.error("Failed to close journal: {}", e.getMessage());
+            }
+        }
+        entries.clear();
+    }
+
+    // ___________Private helpers___________
+    private void snapshot(Entry entry) throws IOException {
+        // Every record up to this LSN is already in the maps; later ones may or may not be, replay sorts that out
+        long lsn = entry.journal.currentLsn();
+        if (lsn == entry.snapshotLsn) {
+            return;
+        }
+        long start = System.nanoTime();
+        entry.snapshots.write(lsn, entry.storage);
+        entry.snapshotLsn = lsn;
+        long oldestKept = entry.snapshots.retain(SNAPSHOTS_TO_KEEP);
+        entry.journal.deleteSegmentsBefore(oldestKept);
+        log.debug("Snapshot {} of {} written in {} ms.", Long.toHexString(lsn), entry.name,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final JournaledStorage storage;
+        private final Journal journal;
+        private final Snapshots snapshots;
+        private long snapshotLsn;
+
+        private Entry(String name, JournaledStorage storage, Journal journal, Snapshots snapshots, long snapshotLsn) {
+            this.name = name;
+            this.storage = storage;
+            this.journal = journal;
+            this.snapshots = snapshots;
+            this.snapshotLsn = snapshotLsn;
+        }
+    }
+}
\ No newline at end of file
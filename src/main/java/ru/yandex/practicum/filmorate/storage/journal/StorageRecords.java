@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Binary layout of films and users in journal records and snapshots.
+// A record starts with a format byte that has the high bit set. The first records had no such byte and start
+// with a non-negative id, so its high bit is clear; they are read as format 0, which has no version.
+public final class StorageRecords {
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int FORMAT_MARK = 0x80;
+    private static final int FORMAT = 1; // 1 - the version follows the id
+
+    private StorageRecords() {
+    }
+
+    public static void writeFilm(RecordWriter out, Film film) {
+        out.writeByte(FORMAT_MARK | FORMAT)
+                .writeInt(film.getId())
+                .writeLong(film.getVersion() == null ? 0 : film.getVersion())
+                .writeString(film.getName())
+                .writeString(film.getDescription())
+                .writeLong(film.getReleaseDate() == null ? NO_DATE : film.getReleaseDate().toEpochDay())
+                .writeInt(film.getDuration());
+        out.writeBoolean(film.getMpa() != null);
+        if (film.getMpa() != null) {
+            out.writeInt(film.getMpa().getId()).writeString(film.getMpa().getName());
+        }
+        Set<Genre> genres = film.getGenres() == null ? Set.of() : film.getGenres();
+        out.writeInt(genres.size());
+        for (Genre genre : genres) {
+            out.writeInt(genre.getId()).writeString(genre.getName());
+        }
+        writeIds(out, film.getLikes());
+    }
+
+    public static Film readFilm(RecordReader in) {
+        int format = readFormat(in);
+        Film film = new Film();
+        film.setId(in.readInt());
+        film.setVersion(format >= 1 ? in.readLong() : 0L);
+        film.setName(in.readString());
+        film.setDescription(in.readString());
+        film.setReleaseDate(readDate(in));
+        film.setDuration(in.readInt());
+        if (in.readBoolean()) {
+            film.setMpa(new MpaRating(in.readInt(), in.readString()));
+        }
+        int genreCount = in.readInt();
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int i = 0; i < genreCount; i++) {
+            genres.add(new Genre(in.readInt(), in.readString()));
+        }
+        film.setGenres(genres);
+        film.setLikes(readIds(in));
+        return film;
+    }
+
+    public static void writeUser(RecordWriter out, User user) {
+        out.writeByte(FORMAT_MARK | FORMAT)
+                .writeInt(user.getId())
+                .writeLong(user.getVersion() == null ? 0 : user.getVersion())
+                .writeString(user.getEmail())
+                .writeString(user.getLogin())
+                .writeString(user.getName())
+                .writeLong(user.getBirthday() == null ? NO_DATE : user.getBirthday().toEpochDay());
+        writeIds(out, user.getFriends());
+    }
+
+    public static User readUser(RecordReader in) {
+        int format = readFormat(in);
+        User user = new User();
+        user.setId(in.readInt());
+        user.setVersion(format >= 1 ? in.readLong() : 0L);
+        user.setEmail(in.readString());
+        user.setLogin(in.readString());
+        user.setName(in.readString());
+        user.setBirthday(readDate(in));
+        user.setFriends(readIds(in));
+        return user;
+    }
+
+    private static int readFormat(RecordReader in) {
+        if ((in.peekByte() & FORMAT_MARK) == 0) {
+            return 0;
+        }
+        int format = in.readByte() & (FORMAT_MARK - 1);
+        if (format > FORMAT) {
+            throw new IllegalStateException("Unknown storage record format: " + format);
+        }
+        return format;
+    }
+
+    private static void writeIds(RecordWriter out, Set<Integer> ids) {
+        if (ids == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(ids.size());
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static Set<Integer> readIds(RecordReader in) {
+        int count = in.readInt();
+        Set<Integer> ids = new HashSet<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            ids.add(in.readInt());
+        }
+        return ids;
+    }
+
+    private static LocalDate readDate(RecordReader in) {
+        long epochDay = in.readLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Applies the migrations from db/background once the application is up, on a thread of its own.
+// They are versioned like the regular ones but tracked in a separate history table, so a long index build
+// neither delays startup nor blocks the schema migrations of the next release.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "filmorate.migrations.background", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class BackgroundMigrations {
+    private final DataSource dataSource;
+
+    public BackgroundMigrations(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::migrate, "background-migrations");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Runs on the background thread; QueryPlanTest calls it directly to plan against the full schema
+    public void migrate() {
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/background")
+                .table("flyway_background_history")
+                // The schema is never empty here: the regular migrations have already run
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load();
+        try {
+            long start = System.currentTimeMillis();
+            MigrateResult result = flyway.migrate();
+            if (result.migrationsExecuted > 0) {
+                log.info("{} background migrations applied in {} ms.", result.migrationsExecuted,
+                        System.currentTimeMillis() - start);
+            }
+        } catch (RuntimeException e) {
+            log.error("Background migrations failed: {}", e.getMessage());
+        }
+    }
+}
\ No newline at end of file
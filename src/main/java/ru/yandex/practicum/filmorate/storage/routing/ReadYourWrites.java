@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage.routing;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Keeps the reads of a client on the primary while its last write may not have reached the replicas yet.
+// The web interceptor pins such requests to the primary; RoutingDataSource checks the pin of the current thread.
+public class ReadYourWrites {
+    // Above this many clients the ones whose window has passed are dropped
+    private static final int MAX_TRACKED_CLIENTS = 100_000;
+
+    private final long lagWindowNanos;
+    private final LongSupplier clock;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> pinned = new ThreadLocal<>();
+
+    public ReadYourWrites(Duration lagWindow) {
+        this(lagWindow, System::nanoTime);
+    }
+
+    ReadYourWrites(Duration lagWindow, LongSupplier clock) {
+        this.lagWindowNanos = lagWindow.toNanos();
+        this.clock = clock;
+    }
+
+    public void writeCompleted(String client) {
+        long now = clock.getAsLong();
+        lastWrites.put(client, now);
+        if (lastWrites.size() > MAX_TRACKED_CLIENTS) {
+            lastWrites.values().removeIf(time -> now - time >= lagWindowNanos);
+        }
+    }
+
+    public boolean wroteRecently(String client) {
+        Long time = lastWrites.get(client);
+        return time != null && clock.getAsLong() - time < lagWindowNanos;
+    }
+
+    // ___________Current thread___________
+    public void pin() {
+        pinned.set(Boolean.TRUE);
+    }
+
+    public void unpin() {
+        pinned.remove();
+    }
+
+    public boolean isPinned() {
+        return pinned.get() != null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.storage.routing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Sends the reads of a client that has just written to the primary.
+// Clients are told apart by the X-Client-Id header, or by their address when it is missing.
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+    static final String CLIENT_HEADER = "X-Client-Id";
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesInterceptor(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isRead(request) && readYourWrites.wroteRecently(client(request))) {
+            readYourWrites.pin();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        readYourWrites.unpin();
+        if (!isRead(request)) {
+            readYourWrites.writeCompleted(client(request));
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    }
+
+    private static String client(HttpServletRequest request) {
+        String client = request.getHeader(CLIENT_HEADER);
+        return client != null ? client : request.getRemoteAddr();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage.routing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read replicas of the database (filmorate.datasource.replicas.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.datasource.replicas")
+public class ReplicaProperties {
+    private boolean enabled = false;
+
+    // JDBC URLs of the replicas; driver, user name and password are those of spring.datasource
+    private List<String> urls = new ArrayList<>();
+
+    // Longest replication lag expected: a client that wrote within this time reads from the primary
+    private Duration lagWindow = Duration.ofSeconds(2);
+}
\ No newline at end of file
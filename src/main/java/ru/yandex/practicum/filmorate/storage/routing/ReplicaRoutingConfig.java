@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads of the @Transactional(readOnly = true) service methods go to the replicas, everything else to the
+// spring.datasource database. Replaces the auto-configured DataSource when filmorate.datasource.replicas.enabled.
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "filmorate.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig implements WebMvcConfigurer {
+    private final ReplicaProperties replicaProperties;
+    private final ReadYourWrites readYourWrites;
+
+    public ReplicaRoutingConfig(ReplicaProperties replicaProperties) {
+        this.replicaProperties = replicaProperties;
+        this.readYourWrites = new ReadYourWrites(replicaProperties.getLagWindow());
+    }
+
+    // Also read by FilmService, which does not coalesce the reads pinned to the primary
+    @Bean
+    public ReadYourWrites readYourWrites() {
+        return readYourWrites;
+    }
+
+    @Bean
+    public RoutingDataSource routingDataSource(DataSourceProperties properties) {
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaProperties.getUrls()) {
+            replicas.add(DataSourceBuilder.create()
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url)
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build());
+        }
+        log.info("Reads of read-only transactions are routed to {} replicas.", replicas.size());
+        return new RoutingDataSource(primary, replicas, readYourWrites);
+    }
+
+    // The DataSource of JdbcTemplate, the transaction manager and Flyway
+    @Bean
+    @Primary
+    public DataSource dataSource(RoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadYourWritesInterceptor(readYourWrites));
+    }
+}
\ No newline at end of file
@@ -69,4 +69,11 @@ public class FriendshipDbStorage implements FriendshipStorage {
                 fromDbStatus(rs.getString("status"))
         ), userId);
     }
+
+    // Getting the ids of the users who have a given user in their friends (idx_friendships_friend)
+    @Override
+    public List<Integer> getFollowerIds(int userId) {
+        String sql = "SELECT user_id FROM friendships WHERE friend_id = ?";
+        return jdbcTemplate.queryForList(sql, Integer.class, userId);
+    }
 }
\ No newline at end of file
@@ -1,30 +1,72 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.journal.Journal;
+import ru.yandex.practicum.filmorate.storage.journal.JournaledStorage;
+import ru.yandex.practicum.filmorate.storage.journal.RecordReader;
+import ru.yandex.practicum.filmorate.storage.journal.RecordWriter;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotWriter;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournals;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
-public class InMemoryFriendshipStorage implements FriendshipStorage {
+public class InMemoryFriendshipStorage implements FriendshipStorage, JournaledStorage {
+    // Journal record types
+    private static final int FRIENDSHIP_ADD = 1;
+    private static final int FRIENDSHIP_UPDATE = 2;
+    private static final int FRIENDSHIP_REMOVE = 3;
 
-    private final Set<Friendship> friendships = new HashSet<>();
+    private final Set<Friendship> friendships = ConcurrentHashMap.newKeySet();
+    private final Journal journal; // null - nothing is persisted
+
+    public InMemoryFriendshipStorage() {
+        this.journal = null;
+    }
+
+    // Restores the friendships from the journal when filmorate.storage.journal.enabled=true
+    @Autowired
+    public InMemoryFriendshipStorage(ObjectProvider<StorageJournals> journals) {
+        StorageJournals available = journals.getIfAvailable();
+        this.journal = available == null ? null : available.open("friendships", this);
+    }
 
     @Override
     public void add(Friendship friendship) {
-        friendships.add(friendship);
+        long lsn;
+        synchronized (this) {
+            friendships.add(friendship);
+            lsn = log(FRIENDSHIP_ADD, friendship);
+        }
+        commit(lsn);
     }
 
     @Override
     public void update(Friendship friendship) {
-        friendships.remove(friendship);
-        friendships.add(friendship);
+        long lsn;
+        synchronized (this) {
+            friendships.remove(friendship);
+            friendships.add(friendship);
+            lsn = log(FRIENDSHIP_UPDATE, friendship);
+        }
+        commit(lsn);
     }
 
     @Override
     public void remove(Friendship friendship) {
-        friendships.remove(friendship);
+        long lsn;
+        synchronized (this) {
+            friendships.remove(friendship);
+            lsn = log(FRIENDSHIP_REMOVE, friendship);
+        }
+        commit(lsn);
     }
 
     @Override
@@ -37,4 +79,75 @@ public class InMemoryFriendshipStorage implements FriendshipStorage {
         }
         return result;
     }
+
+    @Override
+    public List<Integer> getFollowerIds(int userId) {
+        List<Integer> result = new ArrayList<>();
+        for (Friendship f : friendships) {
+            if (f.getFriendId() == userId) {
+                result.add(f.getUserId());
+            }
+        }
+        return result;
+    }
+
+    // __________Journal_____________
+    // Replays one journal record
+    @Override
+    public synchronized void apply(int type, RecordReader record) {
+        Friendship friendship = readFriendship(record);
+        switch (type) {
+            case FRIENDSHIP_ADD -> friendships.add(friendship);
+            case FRIENDSHIP_UPDATE -> {
+                friendships.remove(friendship);
+                friendships.add(friendship);
+            }
+            case FRIENDSHIP_REMOVE -> friendships.remove(friendship);
+            default -> throw new IllegalStateException("Unknown friendship journal record type: " + type);
+        }
+    }
+
+    // Friendships are immutable, nothing to lock while they are written
+    @Override
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        for (Friendship friendship : friendships) {
+            writeFriendship(out.record(), friendship);
+            out.endRecord();
+        }
+    }
+
+    @Override
+    public void loadSnapshot(RecordReader in) {
+        while (in.hasRemaining()) {
+            friendships.add(readFriendship(in));
+        }
+    }
+
+    private long log(int type, Friendship friendship) {
+        if (journal == null) {
+            return 0;
+        }
+        RecordWriter record = writeFriendship(new RecordWriter(9), friendship);
+        try {
+            return journal.append(type, record.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the friendship journal", e);
+        }
+    }
+
+    private static RecordWriter writeFriendship(RecordWriter out, Friendship friendship) {
+        return out.writeInt(friendship.getUserId())
+                .writeInt(friendship.getFriendId())
+                .writeBoolean(friendship.isConfirmed());
+    }
+
+    private static Friendship readFriendship(RecordReader in) {
+        return new Friendship(in.readInt(), in.readInt(), in.readBoolean());
+    }
+
+    private void commit(long lsn) {
+        if (journal != null) {
+            journal.commit(lsn);
+        }
+    }
 }
\ No newline at end of file
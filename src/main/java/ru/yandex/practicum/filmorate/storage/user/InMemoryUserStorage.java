@@ -1,17 +1,45 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.journal.Journal;
+import ru.yandex.practicum.filmorate.storage.journal.JournaledStorage;
+import ru.yandex.practicum.filmorate.storage.journal.RecordReader;
+import ru.yandex.practicum.filmorate.storage.journal.RecordWriter;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotWriter;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournals;
+import ru.yandex.practicum.filmorate.storage.journal.StorageRecords;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import static ru.yandex.practicum.filmorate.validator.UserValidator.validate;
 
 @Component
-public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
+public class InMemoryUserStorage implements UserStorage, JournaledStorage {
+    // Journal record types
+    private static final int USER_PUT = 1;
+
+    private final Map<Integer, User> users = new ConcurrentHashMap<>();
+    private final Journal journal; // null - nothing is persisted
     private int nextId = 1;
 
+    public InMemoryUserStorage() {
+        this.journal = null;
+    }
+
+    // Restores the users from the journal when filmorate.storage.journal.enabled=true
+    @Autowired
+    public InMemoryUserStorage(ObjectProvider<StorageJournals> journals) {
+        StorageJournals available = journals.getIfAvailable();
+        this.journal = available == null ? null : available.open("users", this);
+    }
+
     // Creating a new user
     @Override
     public User addUser(User user) {
@@ -19,18 +47,36 @@ public class InMemoryUserStorage implements UserStorage {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        user.setId(nextId++);
-        users.put(user.getId(), user);
+        long lsn;
+        synchronized (this) {
+            user.setId(nextId++);
+            user.setVersion(0L);
+            users.put(user.getId(), user);
+            lsn = log(user);
+        }
+        commit(lsn);
         return user;
     }
 
     // Updating an existing user by id
     @Override
     public User updateUser(User user) {
-        if (!users.containsKey(user.getId())) {
-            throw new NotFoundException("User with id=" + user.getId() + " not found.");
+        long lsn;
+        synchronized (this) {
+            User current = users.get(user.getId());
+            if (current == null) {
+                throw new NotFoundException("User with id=" + user.getId() + " not found.");
+            }
+            long version = current.getVersion() == null ? 0 : current.getVersion();
+            if (user.getVersion() != null && user.getVersion() != version) {
+                throw new ConflictException("User with id=" + user.getId() + " was changed by someone else: " +
+                        "version " + version + ", expected " + user.getVersion() + ".");
+            }
+            user.setVersion(version + 1);
+            users.put(user.getId(), user);
+            lsn = log(user);
         }
-        users.put(user.getId(), user);
+        commit(lsn);
         return user;
     }
 
@@ -45,4 +91,74 @@ public class InMemoryUserStorage implements UserStorage {
     public List<User> getAllUsers() {
         return new ArrayList<>(users.values());
     }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        List<User> result = new ArrayList<>();
+        for (int id : ids) {
+            getUserById(id).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Integer> findUserIds(Collection<Integer> ids) {
+        Set<Integer> result = new HashSet<>();
+        for (int id : ids) {
+            if (users.containsKey(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    // __________Journal_____________
+    // Replays one journal record
+    @Override
+    public synchronized void apply(int type, RecordReader record) {
+        if (type != USER_PUT) {
+            throw new IllegalStateException("Unknown user journal record type: " + type);
+        }
+        User user = StorageRecords.readUser(record);
+        users.put(user.getId(), user);
+        nextId = Math.max(nextId, user.getId() + 1);
+    }
+
+    @Override
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        for (User user : users.values()) {
+            synchronized (this) {
+                StorageRecords.writeUser(out.record(), user);
+            }
+            out.endRecord();
+        }
+    }
+
+    @Override
+    public synchronized void loadSnapshot(RecordReader in) {
+        while (in.hasRemaining()) {
+            User user = StorageRecords.readUser(in);
+            users.put(user.getId(), user);
+            nextId = Math.max(nextId, user.getId() + 1);
+        }
+    }
+
+    private long log(User user) {
+        if (journal == null) {
+            return 0;
+        }
+        RecordWriter record = new RecordWriter(64);
+        StorageRecords.writeUser(record, user);
+        try {
+            return journal.append(USER_PUT, record.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the user journal", e);
+        }
+    }
+
+    private void commit(long lsn) {
+        if (journal != null) {
+            journal.commit(lsn);
+        }
+    }
 }
\ No newline at end of file
@@ -2,18 +2,27 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Component("userDbStorage")
 @RequiredArgsConstructor
@@ -42,22 +51,30 @@ public class UserDbStorage implements UserStorage {
         return getUserById(userId).orElseThrow(() -> new NotFoundException("User not found after creation."));
     }
 
-    // Updating an existing user by id
+    // Updating an existing user by id in one statement: FINAL TABLE returns the new version from the UPDATE itself.
+    // With a version from the client the update is a compare-and-set. Only when nothing was written is it checked
+    // whether the user is missing or was changed by someone else; the result is the written state, not a re-read.
     @Override
     public User updateUser(User user) {
-        String sql = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
-        int rows = jdbcTemplate.update(sql,
-                user.getEmail(),
-                user.getLogin(),
-                user.getName(),
-                Date.valueOf(user.getBirthday()),
-                user.getId());
-
-        if (rows == 0) {
-            throw new NotFoundException("User with id=" + user.getId() + " not found.");
+        String sql = "SELECT version FROM FINAL TABLE (UPDATE users SET email = ?, login = ?, name = ?, " +
+                "birthday = ?, version = version + 1 WHERE id = ?" +
+                (user.getVersion() == null ? ")" : " AND version = ?)");
+        Object[] args = {user.getEmail(), user.getLogin(), user.getName(), Date.valueOf(user.getBirthday()),
+                user.getId(), user.getVersion()};
+        List<Long> versions = jdbcTemplate.queryForList(sql, Long.class,
+                user.getVersion() == null ? Arrays.copyOf(args, args.length - 1) : args);
+        if (versions.isEmpty()) {
+            throw updateMiss(user);
         }
 
-        return getUserById(user.getId()).orElseThrow(() -> new NotFoundException("User not found after update."));
+        User updated = new User();
+        updated.setId(user.getId());
+        updated.setEmail(user.getEmail());
+        updated.setLogin(user.getLogin());
+        updated.setName(user.getName());
+        updated.setBirthday(user.getBirthday());
+        updated.setVersion(versions.get(0));
+        return updated;
     }
 
     // Getting a user by id
@@ -71,6 +88,7 @@ public class UserDbStorage implements UserStorage {
             user.setLogin(rs.getString("login"));
             user.setName(rs.getString("name"));
             user.setBirthday(rs.getDate("birthday").toLocalDate());
+            user.setVersion(rs.getLong("version"));
             return user;
         }, id);
 
@@ -88,7 +106,64 @@ public class UserDbStorage implements UserStorage {
             user.setLogin(rs.getString("login"));
             user.setName(rs.getString("name"));
             user.setBirthday(rs.getDate("birthday").toLocalDate());
+            user.setVersion(rs.getLong("version"));
             return user;
         });
     }
+
+    // Getting several users with one IN-list query
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT * FROM users WHERE id IN (" + placeholders + ")";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            User user = new User();
+            user.setId(rs.getInt("id"));
+            user.setEmail(rs.getString("email"));
+            user.setLogin(rs.getString("login"));
+            user.setName(rs.getString("name"));
+            user.setBirthday(rs.getDate("birthday").toLocalDate());
+            user.setVersion(rs.getLong("version"));
+            return user;
+        }, ids.toArray());
+    }
+
+    // Versions of several users with one IN-list query, without the other columns
+    @Override
+    public Map<Integer, Long> getUserVersions(Collection<Integer> ids) {
+        Map<Integer, Long> versions = new HashMap<>();
+        if (ids.isEmpty()) {
+            return versions;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT id, version FROM users WHERE id IN (" + placeholders + ")";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> versions.put(rs.getInt("id"), rs.getLong("version")),
+                ids.toArray());
+        return versions;
+    }
+
+    // Checking which of the given users exist with one IN-list query
+    @Override
+    public Set<Integer> findUserIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT id FROM users WHERE id IN (" + placeholders + ")";
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, ids.toArray()));
+    }
+
+    // Telling a missing user from a stale version, once the update has written nothing
+    private RuntimeException updateMiss(User user) {
+        List<Long> current = jdbcTemplate.queryForList("SELECT version FROM users WHERE id = ?", Long.class,
+                user.getId());
+        if (current.isEmpty()) {
+            return new NotFoundException("User with id=" + user.getId() + " not found.");
+        }
+        return new ConflictException("User with id=" + user.getId() + " was changed by someone else: version " +
+                current.get(0) + ", expected " + user.getVersion() + ".");
+    }
 }
\ No newline at end of file
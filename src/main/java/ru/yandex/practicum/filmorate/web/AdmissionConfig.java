@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Admission control on the like, like batch and friend endpoints (filmorate.admission.enabled=false turns it off)
+@Configuration
+@ConditionalOnProperty(prefix = "filmorate.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig implements WebMvcConfigurer {
+    private final AdmissionControl admissionControl;
+
+    public AdmissionConfig(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new WriteAdmissionInterceptor(admissionControl))
+                .addPathPatterns(WriteAdmissionInterceptor.WRITE_PATHS);
+    }
+}
\ No newline at end of file
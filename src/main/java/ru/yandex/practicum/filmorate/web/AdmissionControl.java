@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Per-user rate limit and a global concurrency limit for writes. Requests over a limit are rejected
+// right away with a Retry-After hint instead of waiting for a database connection.
+// The rate limit is a token bucket kept as one "theoretical arrival time" per user (GCRA),
+// updated with a compare-and-set, so admitting a request takes no lock. An arrival time in the past admits
+// the same as no entry at all, so such entries are dropped now and then and idle users take no memory.
+@Component
+public class AdmissionControl {
+    private static final long GLOBAL_RETRY_AFTER_SECONDS = 1;
+    private static final long EVICTED = Long.MIN_VALUE + 1; // an entry being removed; take a new one
+    private static final long EVICTION_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    private final long emissionInterval; // nanos between two writes at the sustained rate
+    private final long burstTolerance; // how far ahead of now a user's arrival time may run
+    private final Semaphore writes;
+    private final LongSupplier clock;
+    private final Map<Integer, AtomicLong> arrivals = new ConcurrentHashMap<>(); // user id -> arrival time
+    private final AtomicLong lastEviction;
+
+    @Autowired
+    public AdmissionControl(AdmissionProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    AdmissionControl(AdmissionProperties properties, LongSupplier clock) {
+        this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getUserRate());
+        this.burstTolerance = emissionInterval * (Math.max(1, properties.getUserBurst()) - 1);
+        this.writes = new Semaphore(properties.getMaxConcurrentWrites());
+        this.clock = clock;
+        this.lastEviction = new AtomicLong(clock.getAsLong());
+    }
+
+    // Takes a write slot and a token of the user; the slot must be given back with release().
+    // The slot goes first, so a request shed by the global limit does not use up the user's rate.
+    public void admit(int userId) {
+        admit();
+        try {
+            acquireToken(userId);
+        } catch (TooManyRequestsException e) {
+            writes.release();
+            throw e;
+        }
+        evictIdleUsers();
+    }
+
+    // Takes only a write slot, for a write on behalf of many users (a like batch)
+    public void admit() {
+        if (!writes.tryAcquire()) {
+            throw new TooManyRequestsException("Too many writes in progress, try again later.",
+                    GLOBAL_RETRY_AFTER_SECONDS);
+        }
+    }
+
+    public void release() {
+        writes.release();
+    }
+
+    // Write slots not taken at the moment
+    public int availableWrites() {
+        return writes.availablePermits();
+    }
+
+    // Users with an entry at the moment
+    int trackedUsers() {
+        return arrivals.size();
+    }
+
+    private void acquireToken(int userId) {
+        while (true) {
+            AtomicLong arrival = arrivals.computeIfAbsent(userId, id -> new AtomicLong(Long.MIN_VALUE));
+            long now = clock.getAsLong();
+            long previous = arrival.get();
+            if (previous == EVICTED) {
+                arrivals.remove(userId, arrival);
+                continue;
+            }
+            long start = previous == Long.MIN_VALUE || previous - now < 0 ? now : previous;
+            long wait = start - now - burstTolerance;
+            if (wait > 0) {
+                long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+                throw new TooManyRequestsException("Too many writes by user with id=" + userId + ".", seconds);
+            }
+            if (arrival.compareAndSet(previous, start + emissionInterval)) {
+                return;
+            }
+        }
+    }
+
+    // At most once per interval, by whichever request comes first. An entry is marked before it is removed, so a
+    // request that has just read it takes a new one instead of charging the removed one.
+    private void evictIdleUsers() {
+        long now = clock.getAsLong();
+        long last = lastEviction.get();
+        if (now - last < EVICTION_INTERVAL || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        arrivals.forEach((userId, arrival) -> {
+            long previous = arrival.get();
+            if ((previous == Long.MIN_VALUE || previous - now <= 0) && arrival.compareAndSet(previous, EVICTED)) {
+                arrivals.remove(userId, arrival);
+            }
+        });
+    }
+}
\ No newline at end of file
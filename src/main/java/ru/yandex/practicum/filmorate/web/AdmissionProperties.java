@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.web;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Settings of admission control on write endpoints (filmorate.admission.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+
+    // Sustained writes per second allowed for one user
+    private double userRate = 10;
+
+    // Writes a user may make at once after being idle
+    private int userBurst = 20;
+
+    // Writes executed at the same time by all users; keep below the connection pool size so reads get connections
+    private int maxConcurrentWrites = 8;
+}
\ No newline at end of file
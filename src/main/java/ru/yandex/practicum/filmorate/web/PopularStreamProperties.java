@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.web;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Settings of GET /films/popular/stream (filmorate.popular.stream.*)
+@Data
+@ConfigurationProperties(prefix = "filmorate.popular.stream")
+public class PopularStreamProperties {
+    // Likes within one interval are sent as one frame; 0 - frames are sent only by publishChanges()
+    private Duration interval = Duration.ofSeconds(1);
+
+    // Subscriptions are closed after this time and the client reconnects
+    private Duration timeout = Duration.ofMinutes(30);
+
+    // A subscriber whose frame cannot be written within this time does not read and is dropped
+    private Duration sendTimeout = Duration.ofSeconds(10);
+
+    // Largest ranking size a subscriber can ask for
+    private int maxCount = 100;
+}
\ No newline at end of file
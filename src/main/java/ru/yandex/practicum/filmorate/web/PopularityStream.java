@@ -0,0 +1,289 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Server-Sent Events with the most popular films for GET /films/popular/stream.
+// The like path only raises a flag; once per interval the changed rankings are serialized,
+// one frame per requested count shared by all of its subscribers. Every subscriber holds just
+// the latest frame it has not received yet, so a slow client skips frames instead of queueing them.
+// A subscriber has at most one send in progress, on a sender thread of its own while it lasts, so a client that
+// does not read holds one thread and no other client waits for it; a send that outlasts the send timeout drops
+// the subscriber.
+@Slf4j
+@Component
+public class PopularityStream {
+    private static final String EVENT_NAME = "ranking";
+
+    private final PopularityIndex popularityIndex;
+    private final ObjectMapper objectMapper;
+    private final PopularStreamProperties properties;
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>(); // count -> subscribers
+    private final Map<Integer, List<RankedFilm>> lastSent = new HashMap<>(); // guarded by this
+    private final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "popular-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService senders = Executors.newCachedThreadPool(new SenderThreads());
+
+    public PopularityStream(PopularityIndex popularityIndex, ObjectMapper objectMapper,
+                            PopularStreamProperties properties) {
+        this.popularityIndex = popularityIndex;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        long interval = properties.getInterval().toMillis();
+        if (interval > 0) {
+            publisher.scheduleWithFixedDelay(this::publishQuietly, interval, interval, TimeUnit.MILLISECONDS);
+            publisher.scheduleWithFixedDelay(this::dropStalledSubscribers, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    // A new subscriber gets the current ranking right away and then only the changes
+    public SseEmitter subscribe(int count) {
+        return subscribe(count, new SseEmitter(properties.getTimeout().toMillis()));
+    }
+
+    SseEmitter subscribe(int count, SseEmitter emitter) {
+        if (count <= 0 || count > properties.getMaxCount()) {
+            throw new ValidationException("Count must be between 1 and " + properties.getMaxCount() + ".");
+        }
+        Subscriber subscriber = new Subscriber(count, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.computeIfAbsent(count, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        List<RankedFilm> ranking = ranking(count);
+        subscriber.offer(frame(new RankingFrame(popularityIndex.getRankingVersion(), ranking, List.of())));
+        log.debug("Popular stream subscriber added (count={}).", count);
+        return emitter;
+    }
+
+    // ___________Listeners___________
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        changed.set(true);
+    }
+
+    // A new film can enter a ranking that is shorter than the requested count
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        changed.set(true);
+    }
+
+    // Sends one frame per subscribed count whose ranking has changed since the previous frame
+    public synchronized void publishChanges() {
+        if (!changed.getAndSet(false)) {
+            return;
+        }
+        lastSent.keySet().retainAll(subscribers.keySet());
+        for (Map.Entry<Integer, Set<Subscriber>> entry : subscribers.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                lastSent.remove(entry.getKey());
+                continue;
+            }
+            List<RankedFilm> ranking = ranking(entry.getKey());
+            List<RankedFilm> previous = lastSent.put(entry.getKey(), ranking);
+            List<Integer> changedIds = diff(previous, ranking);
+            if (previous != null && changedIds.isEmpty()) {
+                continue;
+            }
+            Set<DataWithMediaType> frame = frame(
+                    new RankingFrame(popularityIndex.getRankingVersion(), ranking, changedIds));
+            for (Subscriber subscriber : entry.getValue()) {
+                subscriber.offer(frame);
+            }
+        }
+    }
+
+    // Drops the subscribers whose send has been blocked for longer than the send timeout: they get no more
+    // frames, and their sender is interrupted and completes the response once the write gives up
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        long limit = properties.getSendTimeout().toNanos();
+        for (Set<Subscriber> group : subscribers.values()) {
+            for (Subscriber subscriber : group) {
+                if (subscriber.isStalled(now, limit)) {
+                    unsubscribe(subscriber);
+                    subscriber.abort();
+                    log.info("Popular stream subscriber dropped: a frame could not be sent within {}.",
+                            properties.getSendTimeout());
+                }
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        publisher.shutdownNow();
+        senders.shutdownNow();
+        subscribers.values().forEach(group -> group.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    // ___________Private helpers___________
+    private List<RankedFilm> ranking(int count) {
+        List<RankedFilm> ranking = new ArrayList<>();
+        for (int filmId : popularityIndex.top(count)) {
+            ranking.add(new RankedFilm(filmId, popularityIndex.getLikeCount(filmId)));
+        }
+        return ranking;
+    }
+
+    // Films whose position or like count differ from the previous frame
+    private static List<Integer> diff(List<RankedFilm> previous, List<RankedFilm> current) {
+        List<Integer> changedIds = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            if (previous == null || i >= previous.size() || !previous.get(i).equals(current.get(i))) {
+                changedIds.add(current.get(i).id());
+            }
+        }
+        return changedIds;
+    }
+
+    // Serialized once and written as is to every subscriber
+    private Set<DataWithMediaType> frame(RankingFrame frame) {
+        try {
+            return SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .data(objectMapper.writeValueAsString(frame), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize the popular films frame", e);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Set<Subscriber> group = subscribers.get(subscriber.count);
+        if (group != null) {
+            group.remove(subscriber);
+        }
+    }
+
+    private void publishQuietly() {
+        try {
+            publishChanges();
+        } catch (RuntimeException e) {
+            log.error("Failed to publish popular films: {}", e.getMessage());
+        }
+    }
+
+    // One entry of the ranking
+    record RankedFilm(int id, int likes) {
+    }
+
+    // Frame body: the whole ranking, so a skipped frame loses nothing, and the films that changed
+    // since the previous frame of this count; version is the ranking version of GET /films/popular
+    record RankingFrame(long version, List<RankedFilm> films, List<Integer> changed) {
+    }
+
+    private final class Subscriber {
+        private final int count;
+        private final SseEmitter emitter;
+        private final AtomicReference<Set<DataWithMediaType>> pending = new AtomicReference<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long sendStarted; // System.nanoTime() when the send in progress started, 0 - none
+        private volatile Thread sender;
+        private volatile boolean dropped;
+
+        private Subscriber(int count, SseEmitter emitter) {
+            this.count = count;
+            this.emitter = emitter;
+        }
+
+        // Replaces a frame that has not been sent yet; at most one send per subscriber is in progress
+        private void offer(Set<DataWithMediaType> frame) {
+            if (dropped) {
+                return;
+            }
+            pending.set(frame);
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            sender = Thread.currentThread();
+            try {
+                Set<DataWithMediaType> frame;
+                while (!dropped && (frame = pending.getAndSet(null)) != null) {
+                    sendStarted = System.nanoTime();
+                    emitter.send(frame);
+                    sendStarted = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(this); // the client has gone, the container completes the request
+                return;
+            } finally {
+                sendStarted = 0;
+                sender = null;
+                Thread.interrupted(); // an abort that came after the send must not reach the next task
+            }
+            if (dropped) {
+                emitter.completeWithError(new IOException("Popular stream client does not read its frames"));
+                return;
+            }
+            sending.set(false);
+            // A frame offered after the last check but before the flag was cleared
+            if (pending.get() != null && sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private boolean isStalled(long now, long limit) {
+            long started = sendStarted;
+            return started != 0 && now - started > limit;
+        }
+
+        // The emitter is not touched here: it stays locked while the send is blocked
+        private void abort() {
+            dropped = true;
+            Thread thread = sender;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private static final class SenderThreads implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "popular-stream-send-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.List;
+
+// Runs admission control before the like, like batch and friend write endpoints; reads are never limited
+public class WriteAdmissionInterceptor implements HandlerInterceptor {
+    // Paths of the limited endpoints; {userId} is the user whose bucket is charged, a path without it only
+    // takes a write slot
+    static final List<String> WRITE_PATHS = List.of(
+            "/films/{filmId}/like/{userId}",
+            "/users/{userId}/friends/{friendId}",
+            "/films/likes/batch");
+
+    private static final String ADMITTED = WriteAdmissionInterceptor.class.getName() + ".ADMITTED";
+
+    private final AdmissionControl admissionControl;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public WriteAdmissionInterceptor(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if ("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : WRITE_PATHS) {
+            if (pathMatcher.match(pattern, path) && admit(pattern, path)) { // throws TooManyRequestsException -> 429
+                request.setAttribute(ADMITTED, Boolean.TRUE);
+                break;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(ADMITTED) != null) {
+            request.removeAttribute(ADMITTED);
+            admissionControl.release();
+        }
+    }
+
+    // False when nothing was taken
+    private boolean admit(String pattern, String path) {
+        String userId = pathMatcher.extractUriTemplateVariables(pattern, path).get("userId");
+        if (userId == null) {
+            admissionControl.admit();
+            return true;
+        }
+        try {
+            admissionControl.admit(Integer.parseInt(userId));
+            return true;
+        } catch (NumberFormatException e) {
+            return false; // rejected as a bad request by the controller
+        }
+    }
+}
\ No newline at end of file
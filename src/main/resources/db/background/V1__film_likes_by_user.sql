@@ -0,0 +1,2 @@
+-- Who liked what; film_likes is the largest table, so the index is built after startup
+CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes (user_id, film_id);
\ No newline at end of file
@@ -0,0 +1,6 @@
+-- Indexes for reverse lookups (incoming friend requests, films by rating or genre)
+-- and for the foreign key checks of cascaded deletes.
+-- The index on film_likes is built in the background, see db/background.
+CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships (friend_id, status);
+CREATE INDEX IF NOT EXISTS idx_films_mpa ON films (mpa_id);
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres (genre_id, film_id);
\ No newline at end of file
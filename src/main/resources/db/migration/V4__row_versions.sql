@@ -0,0 +1,3 @@
+-- Row versions for compare-and-set updates of films and users
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
\ No newline at end of file
@@ -0,0 +1,8 @@
+-- film_likes of the films that hash to this shard (see ShardedLikeStore).
+-- Films and users stay in the main database, so there are no foreign keys here.
+CREATE TABLE IF NOT EXISTS film_likes (
+    film_id INT NOT NULL,
+    user_id INT NOT NULL,
+    PRIMARY KEY (film_id, user_id)
+);
+CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes (user_id, film_id);
\ No newline at end of file
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularResponseCacheTest {
+    private InMemoryFilmStorage filmStorage;
+    private PopularityIndex popularityIndex;
+    private PopularResponseCache cache;
+    private int renders;
+    private Runnable duringRender = () -> { };
+
+    // ____________Helpers___________
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        Film created = filmStorage.addFilm(film);
+        popularityIndex.filmAdded(created);
+        return created;
+    }
+
+    // The write, the index and the event in the order FilmService does them
+    private void like(Film film, int userId) {
+        filmStorage.addLike(film.getId(), userId);
+        popularityIndex.likeChanged(film.getId(), 1);
+        cache.onLikeChanged(new LikeChangedEvent(film.getId(), userId, true));
+    }
+
+    private void update(Film film) {
+        Film updated = filmStorage.updateFilm(film);
+        popularityIndex.filmUpdated(updated);
+        cache.onFilmChanged(new FilmChangedEvent(updated, false));
+    }
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        popularityIndex = new PopularityIndex(filmStorage);
+        // Renders straight from the index and the storage and counts how often it is asked to
+        FilmService filmService = new FilmService(filmStorage, null, null, null, popularityIndex, event -> { }) {
+            @Override
+            public List<Film> getPopular(int count) {
+                renders++;
+                duringRender.run();
+                return popularityIndex.top(count).stream()
+                        .map(filmStorage::getFilmById)
+                        .flatMap(Optional::stream)
+                        .toList();
+            }
+        };
+        cache = new PopularResponseCache(filmService, popularityIndex, Jackson2ObjectMapperBuilder.json().build(), 100);
+    }
+
+    // ____________Tests___________
+
+    // Test: Only likes that change the top N and edits of films in it should drop the cached body
+    @Test
+    void shouldDropEntryOnlyWhenTopChanges() {
+        Film first = createFilm("First");
+        Film second = createFilm("Second");
+        Film third = createFilm("Third");
+        Film fourth = createFilm("Fourth");
+        for (int userId = 1; userId <= 3; userId++) {
+            like(first, userId);
+        }
+        like(second, 1);
+        like(second, 2);
+        like(third, 1);
+
+        byte[] cached = cache.get(2);
+        assertEquals(1, renders);
+        assertSame(cached, cache.get(2));
+
+        // Below the top two: neither a like that leaves the film there nor an edit of it reach the entry
+        like(fourth, 1);
+        update(third);
+        assertSame(cached, cache.get(2));
+        assertEquals(1, renders);
+
+        // An edit of a film in the top two
+        first.setName("First, edited");
+        update(first);
+        byte[] edited = cache.get(2);
+        assertNotSame(cached, edited);
+        assertEquals(2, renders);
+
+        // The third film overtakes the second one and enters the top two
+        like(third, 2);
+        like(third, 3);
+        assertEquals(List.of(first.getId(), third.getId()), popularityIndex.top(2));
+        assertNotSame(edited, cache.get(2));
+        assertEquals(3, renders);
+        cache.get(2);
+        assertEquals(3, renders);
+    }
+
+    // Test: A body rendered before an invalidation should be returned but not stored
+    @Test
+    void shouldNotStoreRenderThatRacedWithInvalidation() {
+        Film film = createFilm("Film");
+        Film other = createFilm("Other");
+        like(film, 1);
+        duringRender = () -> {
+            duringRender = () -> { };
+            like(other, 1); // lands while the first render is in progress
+        };
+
+        byte[] raced = cache.get(2);
+        assertEquals(1, renders);
+        byte[] fresh = cache.get(2);
+        assertEquals(2, renders);
+        assertNotSame(raced, fresh);
+
+        assertSame(fresh, cache.get(2));
+        assertEquals(2, renders);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmStamp;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceVersionsTest {
+    private final ResourceVersions versions = new ResourceVersions(new PopularityIndex(new InMemoryFilmStorage()));
+
+    // ____________Helpers___________
+
+    private static Film film(long version, Integer... likes) {
+        Film film = new Film();
+        film.setId(1);
+        film.setVersion(version);
+        film.setLikes(new LinkedHashSet<>(List.of(likes)));
+        return film;
+    }
+
+    private static User user(int id, long version) {
+        User user = new User();
+        user.setId(id);
+        user.setVersion(version);
+        return user;
+    }
+
+    // ____________Tests___________
+
+    // Test: The ETag of a film should follow the film as read, not the version counters
+    @Test
+    void shouldBuildFilmEtagFromFilmAsRead() {
+        String etag = versions.filmEtag(film(3, 1, 2));
+        versions.onLikeChanged(new LikeChangedEvent(1, 5, true)); // a write the replica has not got yet
+
+        assertEquals(etag, versions.filmEtag(film(3, 2, 1)));
+        assertNotEquals(etag, versions.filmEtag(film(3, 1, 2, 5)));
+        assertNotEquals(etag, versions.filmEtag(film(4, 1, 2)));
+    }
+
+    // Test: A conditional request checked against the stamp alone should match the ETag of the film as loaded
+    @Test
+    void shouldBuildSameEtagFromStampAndLoadedFilm() {
+        assertEquals(versions.filmEtag(film(3, 1, 2)), versions.filmEtag(new FilmStamp(1, 3, 2)));
+        assertEquals(versions.popularEtag(2, 1, null, null, List.of(FilmStamp.of(film(3, 1, 2)))),
+                versions.popularEtag(2, 1, null, null, List.of(new FilmStamp(1, 3, 2))));
+        assertNotEquals(versions.popularEtag(2, 1, null, null, List.of(new FilmStamp(1, 3, 2))),
+                versions.popularEtag(2, 1, null, null, List.of(new FilmStamp(1, 3, 3))));
+    }
+
+    // Test: The ETag of a friend list should follow the friends, their order and their row versions
+    @Test
+    void shouldBuildSameFriendsEtagFromVersionsAndLoadedFriends() {
+        Map<Integer, Long> friendVersions = new LinkedHashMap<>();
+        friendVersions.put(2, 0L);
+        friendVersions.put(3, 4L);
+
+        String etag = versions.friendsEtag(1, friendVersions);
+
+        assertEquals(etag, versions.friendsEtag(1, List.of(user(2, 0), user(3, 4))));
+        assertNotEquals(etag, versions.friendsEtag(1, List.of(user(3, 4), user(2, 0))));
+        assertNotEquals(etag, versions.friendsEtag(1, List.of(user(2, 0), user(3, 5))));
+        assertNotEquals(etag, versions.friendsEtag(1, List.of(user(2, 0))));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.FeedEvent.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryFriendshipStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivityFeedTest {
+    private InMemoryFriendshipStorage friendshipStorage;
+    private LikeMatrix likeMatrix;
+    private ActivityFeed feed;
+
+    // ____________Helpers___________
+
+    private void befriend(int userId, int friendId) {
+        friendshipStorage.add(new Friendship(userId, friendId, false));
+        feed.onFriendshipChanged(new FriendshipChangedEvent(userId, friendId, FriendshipChangedEvent.Action.ADDED));
+    }
+
+    private void like(int filmId, int userId) {
+        LikeChangedEvent event = new LikeChangedEvent(filmId, userId, true);
+        likeMatrix.onLikeChanged(event);
+        feed.onLikeChanged(event);
+    }
+
+    private void editFilm(int filmId) {
+        Film film = new Film();
+        film.setId(filmId);
+        feed.onFilmChanged(new FilmChangedEvent(film, false));
+    }
+
+    private static List<Integer> entityIds(List<FeedEvent> events) {
+        return events.stream().map(FeedEvent::getEntityId).toList();
+    }
+
+    private void createFeed(int capacity, int fanoutLimit) {
+        FeedProperties properties = new FeedProperties();
+        properties.setCapacity(capacity);
+        properties.setFanoutLimit(fanoutLimit);
+        feed = new ActivityFeed(friendshipStorage, likeMatrix, properties);
+    }
+
+    @BeforeEach
+    void setUp() {
+        friendshipStorage = new InMemoryFriendshipStorage();
+        likeMatrix = new LikeMatrix(new InMemoryFilmStorage());
+        likeMatrix.build();
+        createFeed(10, 100);
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldShowOwnAndFriendsActivityNewestFirst() {
+        befriend(1, 2);
+        like(10, 2);
+        like(11, 1);
+        like(12, 3); // not a friend of user 1
+
+        List<FeedEvent> events = feed.read(1, null, 10);
+
+        assertEquals(List.of(11, 10, 2), entityIds(events));
+        assertEquals(EventType.LIKE, events.get(1).getEventType());
+        assertEquals(Operation.ADD, events.get(1).getOperation());
+        assertEquals(2, events.get(1).getUserId());
+        assertEquals(EventType.FRIEND, events.get(2).getEventType());
+        assertEquals(List.of(10), entityIds(feed.read(2, null, 10)));
+    }
+
+    @Test
+    void shouldPageWithCursor() {
+        for (int filmId = 1; filmId <= 5; filmId++) {
+            like(filmId, 1);
+        }
+
+        List<FeedEvent> first = feed.read(1, null, 2);
+        List<FeedEvent> second = feed.read(1, first.get(1).getEventId(), 2);
+        List<FeedEvent> last = feed.read(1, second.get(1).getEventId(), 2);
+
+        assertEquals(List.of(5, 4), entityIds(first));
+        assertEquals(List.of(3, 2), entityIds(second));
+        assertEquals(List.of(1), entityIds(last));
+    }
+
+    @Test
+    void shouldKeepOnlyTheNewestEvents() {
+        createFeed(3, 100);
+        for (int filmId = 1; filmId <= 5; filmId++) {
+            like(filmId, 1);
+        }
+
+        assertEquals(List.of(5, 4, 3), entityIds(feed.read(1, null, 10)));
+    }
+
+    @Test
+    void shouldMergeEventsOfHighDegreeUsersOnRead() {
+        createFeed(10, 1);
+        befriend(1, 3);
+        befriend(2, 3); // user 3 now has two followers, more than the fan-out limit
+        like(20, 3);
+        like(21, 1);
+
+        assertEquals(List.of(21, 20, 3), entityIds(feed.read(1, null, 10)));
+        assertEquals(List.of(20, 3), entityIds(feed.read(2, null, 10)));
+        assertEquals(List.of(20), entityIds(feed.read(3, null, 10)));
+    }
+
+    @Test
+    void shouldDeliverFilmEditsToUsersWhoLikedTheFilm() {
+        like(30, 1);
+        editFilm(30);
+        editFilm(31);
+
+        List<FeedEvent> events = feed.read(1, null, 10);
+
+        assertEquals(List.of(30, 30), entityIds(events));
+        assertEquals(EventType.FILM, events.get(0).getEventType());
+        assertNull(events.get(0).getUserId());
+        assertTrue(feed.read(2, null, 10).isEmpty());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSuggestion;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutocompleteIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private AutocompleteIndex index;
+
+    // ____________Helpers___________
+
+    // Adds a valid film to the storage and tells the index about it
+    private Film registerFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        Film created = filmStorage.addFilm(film);
+        index.onFilmChanged(new FilmChangedEvent(created, true));
+        return created;
+    }
+
+    private void like(Film film, int userId) {
+        filmStorage.addLike(film.getId(), userId);
+        index.onLikeChanged(new LikeChangedEvent(film.getId(), userId, true));
+    }
+
+    private List<Integer> suggestedIds(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream().map(FilmSuggestion::getId).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        index = new AutocompleteIndex(filmStorage, 2);
+    }
+
+    // ____________Tests___________
+
+    // Test: Films should be suggested by the start of the name or of any word in it
+    @Test
+    void shouldSuggestByNameAndWordPrefix() {
+        Film starWars = registerFilm("Star Wars");
+        Film stalker = registerFilm("Stalker");
+        index.build();
+
+        assertEquals(List.of(starWars.getId(), stalker.getId()), suggestedIds("  STA", 2));
+        assertEquals(List.of(starWars.getId()), suggestedIds("star w", 2));
+        assertEquals(List.of(starWars.getId()), suggestedIds("wa", 2));
+        assertEquals("Star Wars", index.suggest("war", 1).get(0).getName());
+        assertEquals(List.of(), suggestedIds("matrix", 2));
+    }
+
+    // Test: Each node should keep only the k most liked films and follow like changes
+    @Test
+    void shouldKeepMostLikedFilmsPerNode() {
+        index.build();
+        Film first = registerFilm("Matrix");
+        Film second = registerFilm("Matrix Reloaded");
+        Film third = registerFilm("Matrix Revolutions");
+        like(third, 1);
+        like(third, 2);
+        like(second, 1);
+
+        assertEquals(List.of(third.getId(), second.getId()), suggestedIds("matr", 5));
+
+        filmStorage.removeLike(third.getId(), 1);
+        index.onLikeChanged(new LikeChangedEvent(third.getId(), 1, false));
+        filmStorage.removeLike(third.getId(), 2);
+        index.onLikeChanged(new LikeChangedEvent(third.getId(), 2, false));
+
+        assertEquals(List.of(second.getId(), first.getId()), suggestedIds("matr", 5));
+    }
+
+    // Test: A renamed film should only be suggested by its new name
+    @Test
+    void shouldMoveRenamedFilm() {
+        index.build();
+        Film film = registerFilm("Alien");
+        film.setName("Aliens");
+        filmStorage.updateFilm(film);
+        index.onFilmChanged(new FilmChangedEvent(film, false));
+        film.setName("Prometheus");
+        filmStorage.updateFilm(film);
+        index.onFilmChanged(new FilmChangedEvent(film, false));
+
+        assertEquals(List.of(), suggestedIds("ali", 2));
+        assertEquals(List.of(film.getId()), suggestedIds("prom", 2));
+    }
+
+    // Test: Likes and unlikes in any order should leave every node with the same top k as a full sort
+    @Test
+    void shouldMatchFullSortAfterRandomLikes() {
+        index.build();
+        List<Film> films = new ArrayList<>();
+        for (String name : List.of("Matrix", "Matrix Reloaded", "Matrix Revolutions", "Mad Max", "Mars Attacks",
+                "Mary Poppins", "Max Payne", "Reloaded")) {
+            films.add(registerFilm(name));
+        }
+        Map<Integer, Integer> likes = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            Film film = films.get(random.nextInt(films.size()));
+            int count = likes.getOrDefault(film.getId(), 0);
+            boolean liked = count == 0 || random.nextInt(3) > 0;
+            likes.put(film.getId(), liked ? count + 1 : count - 1);
+            index.onLikeChanged(new LikeChangedEvent(film.getId(), i, liked));
+
+            for (String prefix : List.of("m", "ma", "mat", "matrix r", "re")) {
+                List<Integer> expected = films.stream()
+                        .filter(candidate -> (candidate.getName().toLowerCase()).startsWith(prefix)
+                                || candidate.getName().toLowerCase().contains(" " + prefix))
+                        .sorted(Comparator.comparingInt((Film candidate) -> -likes.getOrDefault(candidate.getId(), 0))
+                                .thenComparingInt(Film::getId))
+                        .limit(2)
+                        .map(Film::getId)
+                        .toList();
+                assertEquals(expected, suggestedIds(prefix, 2), "prefix " + prefix + " after step " + i);
+            }
+        }
+    }
+
+    // Test: Once loaded, build() should not read the storage again
+    @Test
+    void shouldBuildOnlyOnce() {
+        registerFilm("Solaris");
+        index.build();
+        Film film = new Film();
+        film.setName("Stalker");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        filmStorage.addFilm(film); // no event, so only a reload could find it
+
+        index.build();
+        assertEquals(List.of(), suggestedIds("stal", 2));
+    }
+}
\ No newline at end of file
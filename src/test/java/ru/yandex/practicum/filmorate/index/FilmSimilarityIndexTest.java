@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSimilarityIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private LikeMatrix likeMatrix;
+    private FilmSimilarityIndex index;
+
+    // ____________Helpers___________
+
+    // Adds a valid film to the storage
+    private int createFilm() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return filmStorage.addFilm(film).getId();
+    }
+
+    // Delivers the event to the listeners in the order they are registered in
+    private void like(int filmId, int userId, boolean liked) {
+        if (liked) {
+            filmStorage.addLike(filmId, userId);
+        } else {
+            filmStorage.removeLike(filmId, userId);
+        }
+        LikeChangedEvent event = new LikeChangedEvent(filmId, userId, liked);
+        likeMatrix.onLikeChanged(event);
+        index.onLikeChanged(event);
+    }
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        likeMatrix = new LikeMatrix(filmStorage);
+        SimilarityProperties properties = new SimilarityProperties();
+        properties.setTopK(2);
+        properties.setRefreshInterval(Duration.ZERO);
+        index = new FilmSimilarityIndex(likeMatrix, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.close();
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldStoreTopKNeighboursByCosineSimilarity() {
+        int a = createFilm();
+        int b = createFilm();
+        int c = createFilm();
+        int d = createFilm();
+        likeMatrix.build();
+        like(a, 1, true);
+        like(b, 1, true);
+        like(a, 2, true);
+        like(b, 2, true);
+        like(c, 2, true);
+        like(c, 3, true);
+        like(c, 4, true);
+        like(a, 5, true);
+        like(d, 5, true);
+
+        index.refresh();
+
+        // b: 2 / sqrt(3 * 2) = 0.82, d: 1 / sqrt(3 * 1) = 0.58, c: 1 / sqrt(3 * 3) = 0.33
+        assertEquals(List.of(b, d), index.similar(a, 10));
+        assertEquals(List.of(b), index.similar(a, 1));
+    }
+
+    @Test
+    void shouldComputeNeighboursOfExistingLikesOnBuild() throws InterruptedException {
+        int a = createFilm();
+        int b = createFilm();
+        filmStorage.addLike(a, 1);
+        filmStorage.addLike(b, 1);
+
+        index.build(); // schedules the first computation on the background thread
+        for (int i = 0; i < 100 && index.similar(a, 10).isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(List.of(b), index.similar(a, 10));
+        assertEquals(List.of(a), index.similar(b, 10));
+    }
+
+    @Test
+    void shouldRecomputeOnlyAfterRefresh() {
+        int a = createFilm();
+        int b = createFilm();
+        int c = createFilm();
+        likeMatrix.build();
+        like(a, 1, true);
+        like(b, 1, true);
+        index.refresh();
+
+        like(c, 1, true);
+
+        assertEquals(List.of(b), index.similar(a, 10));
+        index.refresh();
+        assertEquals(List.of(b, c), index.similar(a, 10));
+        assertEquals(List.of(a, b), index.similar(c, 10));
+    }
+
+    @Test
+    void shouldDropNeighboursWhenLikesAreRemoved() {
+        int a = createFilm();
+        int b = createFilm();
+        likeMatrix.build();
+        like(a, 1, true);
+        like(b, 1, true);
+        index.refresh();
+
+        like(b, 1, false);
+        index.refresh();
+
+        assertTrue(index.similar(a, 10).isEmpty());
+        assertTrue(index.similar(b, 10).isEmpty());
+    }
+
+    @Test
+    void shouldRecomputeNeighboursWhenNormChanges() {
+        int a = createFilm();
+        int b = createFilm();
+        int d = createFilm();
+        likeMatrix.build();
+        like(a, 1, true);
+        like(b, 1, true);
+        like(a, 2, true);
+        like(d, 2, true);
+        index.refresh();
+        // b and d: 1 / sqrt(2 * 1) = 0.71 each, the lower id first
+        assertEquals(List.of(b, d), index.similar(a, 10));
+
+        like(b, 9, true);
+        like(b, 10, true);
+        index.refresh();
+
+        // b: 1 / sqrt(2 * 3) = 0.41
+        assertEquals(List.of(d, b), index.similar(a, 10));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikeMatrixTest {
+    private InMemoryFilmStorage filmStorage;
+    private LikeMatrix matrix;
+
+    // ____________Helpers___________
+
+    // Adds a valid film to the storage
+    private int createFilm() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return filmStorage.addFilm(film).getId();
+    }
+
+    private void like(int filmId, int userId) {
+        filmStorage.addLike(filmId, userId);
+        matrix.onLikeChanged(new LikeChangedEvent(filmId, userId, true));
+    }
+
+    private void unlike(int filmId, int userId) {
+        filmStorage.removeLike(filmId, userId);
+        matrix.onLikeChanged(new LikeChangedEvent(filmId, userId, false));
+    }
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        matrix = new LikeMatrix(filmStorage);
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldRecommendFilmsOfTheMostSimilarUser() {
+        int a = createFilm();
+        int b = createFilm();
+        int c = createFilm();
+        int d = createFilm();
+        like(a, 1);
+        like(b, 1);
+        like(a, 2);
+        like(b, 2);
+        like(c, 2); // user 2 shares both films with user 1
+        like(a, 3);
+        like(d, 3); // user 3 shares only one
+
+        matrix.build();
+
+        assertEquals(List.of(c, d), matrix.recommend(1, 10, 10, 100));
+        assertEquals(List.of(c), matrix.recommend(1, 10, 1, 100));
+    }
+
+    @Test
+    void shouldNotRecommendFilmsTheUserAlreadyLiked() {
+        int a = createFilm();
+        int b = createFilm();
+        like(a, 1);
+        like(a, 2);
+        like(b, 2);
+        matrix.build();
+
+        like(b, 1);
+
+        assertTrue(matrix.recommend(1, 10, 10, 100).isEmpty());
+    }
+
+    @Test
+    void shouldLoadExistingLikesFromStorage() {
+        int a = createFilm();
+        int b = createFilm();
+        filmStorage.addLike(a, 1);
+        filmStorage.addLike(a, 2);
+        filmStorage.addLike(b, 2);
+
+        assertEquals(List.of(b), matrix.recommend(1, 10, 10, 100));
+    }
+
+    @Test
+    void shouldSkipPopularFilmsWhenLookingForNeighbours() {
+        int popular = createFilm();
+        int niche = createFilm();
+        int other = createFilm();
+        matrix.build();
+        like(popular, 1);
+        like(popular, 2);
+        like(popular, 3);
+        like(other, 2);
+
+        assertEquals(List.of(other), matrix.recommend(1, 10, 10, 3));
+        assertTrue(matrix.recommend(1, 10, 10, 2).isEmpty());
+
+        like(niche, 1);
+        like(niche, 2);
+        assertEquals(List.of(other), matrix.recommend(1, 10, 10, 2));
+    }
+
+    @Test
+    void shouldForgetRemovedLikes() {
+        int a = createFilm();
+        int b = createFilm();
+        matrix.build();
+        like(a, 1);
+        like(a, 2);
+        like(b, 2);
+
+        unlike(a, 2);
+
+        assertTrue(matrix.recommend(1, 10, 10, 100).isEmpty());
+    }
+
+    @Test
+    void shouldComputeSimilaritiesForManyCandidatesInParallel() {
+        int shared = createFilm();
+        int target = createFilm();
+        matrix.build();
+        like(shared, 0);
+        for (int userId = 1; userId <= 1000; userId++) {
+            like(shared, userId);
+            if (userId % 10 == 0) {
+                like(target, userId);
+            }
+        }
+
+        assertEquals(List.of(target), matrix.recommend(0, 10, 2000, 5000));
+    }
+
+    @Test
+    void shouldReturnEmptyListForUserWithoutLikes() {
+        createFilm();
+        matrix.build();
+
+        assertTrue(matrix.recommend(42, 10, 10, 100).isEmpty());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularityIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private PopularityIndex index;
+
+    // ____________Helpers___________
+
+    // Adds a valid film to the storage and to the index
+    private Film registerFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        Film created = filmStorage.addFilm(film);
+        index.filmAdded(created);
+        return created;
+    }
+
+    // Likes a film in the storage and in the index
+    private boolean like(Film film, int userId) {
+        filmStorage.addLike(film.getId(), userId);
+        return index.likeChanged(film.getId(), 1);
+    }
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        index = new PopularityIndex(filmStorage);
+    }
+
+    // ____________Tests___________
+
+    // Test: Films loaded from the storage should be ordered by likes, then by id
+    @Test
+    void shouldLoadRankingFromStorage() {
+        Film f1 = registerFilm("Film 1");
+        Film f2 = registerFilm("Film 2");
+        Film f3 = registerFilm("Film 3");
+        filmStorage.addLike(f3.getId(), 1);
+
+        assertEquals(List.of(f3.getId(), f1.getId(), f2.getId()), index.top(3));
+        assertEquals(1, index.getLikeCount(f3.getId()));
+    }
+
+    // Test: Loaded at startup, a like written afterwards should be counted once, from its delta only
+    @Test
+    void shouldCountLikeOnceAfterStartupLoad() {
+        Film film = registerFilm("Film 1");
+        filmStorage.addLike(film.getId(), 1);
+        index.afterSingletonsInstantiated();
+
+        like(film, 2);
+        assertEquals(2, index.getLikeCount(film.getId()));
+        assertEquals(2, filmStorage.getLikeCounts().get(film.getId()));
+    }
+
+    // Test: Ranking version should change only when a film overtakes another one
+    @Test
+    void shouldChangeRankingVersionOnlyWhenOrderChanges() {
+        Film f1 = registerFilm("Film 1");
+        Film f2 = registerFilm("Film 2");
+        index.top(2);
+
+        long version = index.getRankingVersion();
+        assertFalse(like(f1, 1)); // f1 was first already
+        assertEquals(version, index.getRankingVersion());
+
+        assertFalse(like(f2, 1)); // tie, f1 stays first because of its smaller id
+        assertEquals(version, index.getRankingVersion());
+
+        assertTrue(like(f2, 2)); // f2 overtakes f1
+        assertNotEquals(version, index.getRankingVersion());
+        assertEquals(List.of(f2.getId(), f1.getId()), index.top(2));
+    }
+
+    // Test: A removed like should move the film back down
+    @Test
+    void shouldMoveFilmDownWhenLikeIsRemoved() {
+        Film f1 = registerFilm("Film 1");
+        Film f2 = registerFilm("Film 2");
+        like(f2, 1);
+
+        filmStorage.removeLike(f2.getId(), 1);
+        assertTrue(index.likeChanged(f2.getId(), -1));
+
+        assertEquals(List.of(f1.getId(), f2.getId()), index.top(5));
+    }
+
+    // Test: Filtered top should only contain films of the requested genre, rating and year
+    @Test
+    void shouldFilterTopByGenreMpaAndYear() {
+        Film drama = registerFilm("Drama");
+        Film comedy = registerFilm("Comedy");
+        Film oldDrama = registerFilm("Old drama");
+        drama.setGenres(Set.of(new Genre(2, "Драма")));
+        drama.setMpa(new MpaRating(3, "PG-13"));
+        filmStorage.updateFilm(drama);
+        index.filmUpdated(drama);
+        oldDrama.setGenres(Set.of(new Genre(2, "Драма")));
+        oldDrama.setReleaseDate(LocalDate.of(1990, 1, 1));
+        filmStorage.updateFilm(oldDrama);
+        index.filmUpdated(oldDrama);
+        like(oldDrama, 1);
+        like(comedy, 1);
+        like(comedy, 2);
+
+        assertEquals(List.of(oldDrama.getId(), drama.getId()), index.top(10, 2, null, null));
+        assertEquals(List.of(drama.getId()), index.top(10, 2, null, 2000));
+        assertEquals(List.of(drama.getId()), index.top(10, null, 3, null));
+        assertEquals(List.of(comedy.getId(), drama.getId()), index.top(2, null, null, 2000));
+        assertEquals(List.of(), index.top(10, 1, null, null));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private PopularityIndex popularityIndex;
+    private SearchIndex searchIndex;
+
+    // ____________Helpers___________
+
+    // Adds a valid film to the storage and tells the index about it
+    private Film registerFilm(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        Film created = filmStorage.addFilm(film);
+        popularityIndex.filmAdded(created);
+        searchIndex.onFilmChanged(new FilmChangedEvent(created, true));
+        return created;
+    }
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        popularityIndex = new PopularityIndex(filmStorage);
+        searchIndex = new SearchIndex(filmStorage, popularityIndex, new SearchProperties());
+    }
+
+    // ____________Tests___________
+
+    // Test: Films built at startup should be found by any word, name matches first
+    @Test
+    void shouldFindFilmsByNameBeforeDescription() {
+        Film space = registerFilm("Space Odyssey", "A journey");
+        Film journey = registerFilm("Journey", "Through space and time");
+        searchIndex.build();
+
+        assertEquals(List.of(space.getId(), journey.getId()), searchIndex.search("space", 0, 10));
+        assertEquals(List.of(journey.getId(), space.getId()), searchIndex.search("JOURNEY", 0, 10));
+        assertEquals(List.of(journey.getId()), searchIndex.search("space time", 0, 10));
+    }
+
+    // Test: Parts of words should match through n-grams
+    @Test
+    void shouldMatchPartOfWord() {
+        searchIndex.build();
+        Film film = registerFilm("Interstellar", "Ёлка");
+
+        assertEquals(List.of(film.getId()), searchIndex.search("stell", 0, 10));
+        assertEquals(List.of(film.getId()), searchIndex.search("елка", 0, 10));
+        assertEquals(List.of(), searchIndex.search("stellar matrix", 0, 10));
+    }
+
+    // Test: Updated films should be found by their new words only
+    @Test
+    void shouldReindexUpdatedFilm() {
+        searchIndex.build();
+        Film film = registerFilm("Alien", "Horror");
+        film.setName("Aliens");
+        film.setDescription("Action");
+        filmStorage.updateFilm(film);
+        searchIndex.onFilmChanged(new FilmChangedEvent(film, false));
+
+        assertEquals(List.of(), searchIndex.search("horror", 0, 10));
+        assertEquals(List.of(film.getId()), searchIndex.search("action", 0, 10));
+    }
+
+    // Test: Equal text scores should be ordered by likes and split into pages
+    @Test
+    void shouldRankByLikesAndPaginate() {
+        searchIndex.build();
+        Film first = registerFilm("Matrix", "Film");
+        Film second = registerFilm("Matrix Reloaded", "Film");
+        filmStorage.addLike(second.getId(), 1);
+        popularityIndex.likeChanged(second.getId(), 1);
+
+        assertEquals(List.of(second.getId()), searchIndex.search("matrix", 0, 1));
+        assertEquals(List.of(first.getId()), searchIndex.search("matrix", 1, 1));
+    }
+}
\ No newline at end of file
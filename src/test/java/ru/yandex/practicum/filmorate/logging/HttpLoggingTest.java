@@ -0,0 +1,208 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpHeaders;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Origin;
+import org.zalando.logbook.Precorrelation;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpLoggingTest {
+
+    // ____________Helpers___________
+
+    private static SamplingStrategy strategy(double sampleRate, String... withoutBody) {
+        HttpLoggingProperties properties = new HttpLoggingProperties();
+        properties.setSampleRate(sampleRate);
+        properties.setWithoutBody(List.of(withoutBody));
+        return new SamplingStrategy(properties);
+    }
+
+    private static boolean bodyless(HttpRequest request) {
+        return ((TestRequest) request).bodyless();
+    }
+
+    // Just enough of a request for the strategy and the sink; starts out as it comes from the servlet filter
+    private record TestRequest(String getMethod, String getPath, boolean bodyless) implements HttpRequest {
+        TestRequest(String method, String path) {
+            this(method, path, false);
+        }
+
+        @Override
+        public String getRemote() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public String getScheme() {
+            return "http";
+        }
+
+        @Override
+        public String getHost() {
+            return "localhost";
+        }
+
+        @Override
+        public Optional<Integer> getPort() {
+            return Optional.of(8080);
+        }
+
+        @Override
+        public String getQuery() {
+            return "";
+        }
+
+        @Override
+        public Origin getOrigin() {
+            return Origin.REMOTE;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return HttpHeaders.empty();
+        }
+
+        @Override
+        public byte[] getBody() {
+            return new byte[0];
+        }
+
+        @Override
+        public HttpRequest withBody() {
+            return new TestRequest(getMethod, getPath, false);
+        }
+
+        @Override
+        public HttpRequest withoutBody() {
+            return new TestRequest(getMethod, getPath, true);
+        }
+    }
+
+    private record TestPrecorrelation(String getId) implements Precorrelation {
+        @Override
+        public Instant getStart() {
+            return Instant.EPOCH;
+        }
+
+        @Override
+        public Correlation correlate() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // Blocks on the first exchange until released, so the queue behind it can be filled up
+    private static class BlockingFormatter implements HttpLogFormatter {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String format(Precorrelation precorrelation, HttpRequest request) throws IOException {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return request.getMethod() + " " + request.getPath();
+        }
+
+        @Override
+        public String format(Correlation correlation, HttpResponse response) {
+            return String.valueOf(response.getStatus());
+        }
+    }
+
+    // ____________Tests___________
+
+    // Test: The sample rate should decide how many exchanges are taken, the edges exactly
+    @Test
+    void shouldSampleConfiguredShareOfExchanges() {
+        HttpRequest request = new TestRequest("GET", "/films/1");
+        SamplingStrategy none = strategy(0.0);
+        SamplingStrategy all = strategy(1.0);
+        SamplingStrategy quarter = strategy(0.25);
+
+        int sampled = 0;
+        for (int i = 0; i < 20_000; i++) {
+            assertFalse(none.isSampled(request));
+            assertTrue(all.isSampled(request));
+            if (quarter.isSampled(request)) {
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 4_000 && sampled < 6_000, "sampled " + sampled + " of 20000");
+    }
+
+    // Test: Bodies of the configured endpoints should be neither buffered nor logged, others should be
+    @Test
+    void shouldSkipBodiesOfConfiguredEndpoints() throws IOException {
+        SamplingStrategy strategy = strategy(1.0, "GET /films", "/users/**");
+
+        assertTrue(bodyless(strategy.process(new TestRequest("GET", "/films"))));
+        assertTrue(bodyless(strategy.process(new TestRequest("get", "/films"))));
+        assertTrue(bodyless(strategy.process(new TestRequest("PUT", "/users/1/friends/2"))));
+        assertFalse(bodyless(strategy.process(new TestRequest("POST", "/films"))));
+        assertFalse(bodyless(strategy.process(new TestRequest("GET", "/films/1"))));
+    }
+
+    // Test: A full queue should drop and count exchanges instead of blocking the request thread
+    @Test
+    void shouldDropExchangesWhenQueueIsFull() throws Exception {
+        BlockingFormatter formatter = new BlockingFormatter();
+        AsyncHttpLogSink sink = new AsyncHttpLogSink(formatter, 1);
+        try {
+            sink.write(new TestPrecorrelation("1"), new TestRequest("GET", "/films/1"));
+            assertTrue(formatter.started.await(10, TimeUnit.SECONDS));
+
+            // The worker is stuck on the first exchange: one more fits in the queue, the rest are dropped
+            for (int i = 2; i <= 5; i++) {
+                sink.write(new TestPrecorrelation(String.valueOf(i)), new TestRequest("GET", "/films/" + i));
+            }
+            assertEquals(3, sink.getDropped());
+        } finally {
+            formatter.release.countDown();
+            sink.close();
+        }
+    }
+
+    // Test: The exchange should be formatted from the snapshot, after the request has been let go
+    @Test
+    void shouldFormatSnapshotOnWriterThread() throws Exception {
+        CountDownLatch formatted = new CountDownLatch(1);
+        String[] seen = new String[2];
+        AsyncHttpLogSink sink = new AsyncHttpLogSink(new HttpLogFormatter() {
+            @Override
+            public String format(Precorrelation precorrelation, HttpRequest request) {
+                seen[0] = Thread.currentThread().getName();
+                seen[1] = request.getRequestUri();
+                formatted.countDown();
+                return seen[1];
+            }
+
+            @Override
+            public String format(Correlation correlation, HttpResponse response) {
+                return String.valueOf(response.getStatus());
+            }
+        }, 10);
+        try {
+            sink.write(new TestPrecorrelation("1"), new TestRequest("GET", "/films/1"));
+            assertTrue(formatted.await(10, TimeUnit.SECONDS));
+            assertEquals("http-log-writer", seen[0]);
+            assertEquals("http://localhost:8080/films/1", seen[1]);
+        } finally {
+            sink.close();
+        }
+    }
+}
\ No newline at end of file
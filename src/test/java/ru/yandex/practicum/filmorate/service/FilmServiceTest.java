@@ -2,19 +2,30 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOutcome;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.routing.ReadYourWrites;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryFriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -56,6 +67,7 @@ class FilmServiceTest {
 
     @BeforeEach
     void setUp() {
+        ApplicationEventPublisher events = event -> { };
         InMemoryUserStorage userStorage = new InMemoryUserStorage();
         InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
 
@@ -74,10 +86,11 @@ class FilmServiceTest {
         GenreService genreService = new GenreService(genreDbStorage);
 
         InMemoryFriendshipStorage friendshipStorage = new InMemoryFriendshipStorage();
-        FriendshipService friendshipService = new FriendshipService(friendshipStorage, userStorage);
+        FriendshipService friendshipService = new FriendshipService(friendshipStorage, userStorage, events);
 
-        userService = new UserService(userStorage, friendshipService);
-        filmService = new FilmService(filmStorage, userStorage, mpaService, genreService);
+        userService = new UserService(userStorage, friendshipService, events);
+        filmService = new FilmService(filmStorage, userStorage, mpaService, genreService,
+                new PopularityIndex(filmStorage), events);
     }
 
     // ____________Tests___________
@@ -139,4 +152,104 @@ class FilmServiceTest {
                 filmService.addLike(film.getId(), user.getId()));
         assertEquals("User with id=" + user.getId() + " has already liked film with id=" + film.getId(), ex.getMessage());
     }
+
+    // Test: Should return films by ids in the requested order and report missing ids
+    @Test
+    void shouldGetFilmsByIdsInRequestedOrder() {
+        Film f1 = registerFilm("Film 1");
+        Film f2 = registerFilm("Film 2");
+
+        MultiGetResult<Film> result = filmService.getFilmsByIds(List.of(f2.getId(), 999, f1.getId()));
+
+        assertEquals(List.of(f2.getId(), f1.getId()), result.getItems().stream().map(Film::getId).toList());
+        assertEquals(List.of(999), result.getMissingIds());
+    }
+
+    // Test: Should apply a like batch and report an outcome per operation, in order
+    @Test
+    void shouldApplyLikeBatchWithOutcomePerOperation() {
+        Film film = registerFilm("Film 1");
+        User u1 = registerUser("u1", "u1@mail.com");
+        User u2 = registerUser("u2", "u2@mail.com");
+        filmService.addLike(film.getId(), u2.getId());
+
+        List<LikeOutcome> outcomes = filmService.applyLikes(List.of(
+                new LikeOperation(film.getId(), u1.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film.getId(), u1.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film.getId(), u2.getId(), LikeOperation.Action.UNLIKE),
+                new LikeOperation(film.getId(), u2.getId(), LikeOperation.Action.UNLIKE),
+                new LikeOperation(999, u1.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film.getId(), 999, LikeOperation.Action.LIKE),
+                new LikeOperation(film.getId(), u1.getId(), null)));
+
+        assertEquals(List.of(LikeOutcome.Status.APPLIED, LikeOutcome.Status.ALREADY_LIKED,
+                        LikeOutcome.Status.APPLIED, LikeOutcome.Status.NOT_LIKED,
+                        LikeOutcome.Status.FILM_NOT_FOUND, LikeOutcome.Status.USER_NOT_FOUND,
+                        LikeOutcome.Status.INVALID),
+                outcomes.stream().map(LikeOutcome::getStatus).toList());
+        assertEquals(Set.of(u1.getId()), film.getLikes());
+    }
+
+    // Test: Should reject an empty like batch
+    @Test
+    void shouldRejectEmptyLikeBatch() {
+        assertThrows(ValidationException.class, () -> filmService.applyLikes(List.of()));
+    }
+
+    // Test: A read pinned to the primary should load by itself instead of joining a coalesced read
+    @Test
+    void shouldNotCoalesceReadsPinnedToPrimary() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(2));
+        FilmService service = new FilmService(filmStorage, null, null, null, new PopularityIndex(filmStorage),
+                event -> { }, new CoalescingProperties(), readYourWrites);
+        Film film = filmStorage.addFilm(makeValidFilm("Film 1"));
+
+        readYourWrites.pin();
+        try {
+            assertEquals(film.getId(), service.getFilmById(film.getId()).getId());
+            assertEquals(1, service.getPopular(10, null, null, null).size());
+        } finally {
+            readYourWrites.unpin();
+        }
+        assertEquals(0, service.getFilmReads().getCalls());
+        assertEquals(0, service.getPopularReads().getCalls());
+
+        service.getFilmById(film.getId());
+        assertEquals(1, service.getFilmReads().getCalls());
+    }
+
+    // Test: The index and the listeners should see a change only once its transaction commits
+    @Test
+    void shouldPublishChangesAfterCommit() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        PopularityIndex popularityIndex = new PopularityIndex(filmStorage);
+        List<Object> published = new ArrayList<>();
+        FilmService service = new FilmService(filmStorage, userStorage, null, null, popularityIndex, published::add);
+        Film film = service.addFilm(makeValidFilm("Film 1"));
+        Film other = service.addFilm(makeValidFilm("Film 2"));
+        User user = userStorage.addUser(makeValidUser("user1", "u1@mail.com"));
+        service.addLike(film.getId(), user.getId());
+        assertEquals(3, published.size()); // no transaction: seen at once
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:film-service-tx")));
+
+        transactions.executeWithoutResult(status -> {
+            service.removeLike(film.getId(), user.getId());
+            service.addLike(other.getId(), user.getId());
+            assertEquals(3, published.size());
+            assertEquals(List.of(film.getId()), popularityIndex.top(1));
+        });
+        assertEquals(5, published.size());
+        assertEquals(List.of(other.getId()), popularityIndex.top(1));
+
+        // A rolled back change is not seen at all
+        transactions.executeWithoutResult(status -> {
+            service.removeLike(other.getId(), user.getId());
+            status.setRollbackOnly();
+        });
+        assertEquals(5, published.size());
+        assertEquals(List.of(other.getId()), popularityIndex.top(1));
+    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
@@ -28,11 +29,14 @@ class FilmServiceValidationTest {
         dataSource.setPassword("password");
 
         JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
         filmService = new FilmService(
-                new InMemoryFilmStorage(),
+                filmStorage,
                 new InMemoryUserStorage(),
                 new MpaService(new MpaDbStorage(jdbcTemplate)),
-                new GenreService(new GenreDbStorage(jdbcTemplate)));
+                new GenreService(new GenreDbStorage(jdbcTemplate)),
+                new PopularityIndex(filmStorage),
+                event -> { });
     }
 
     // ____________Helpers___________
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.SimilarityProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecommendationServiceTest {
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private LikeMatrix likeMatrix;
+    private RecommendationProperties properties;
+    private RecommendationService service;
+
+    // ____________Helpers___________
+
+    private int createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return filmStorage.addFilm(film).getId();
+    }
+
+    private int createUser(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(login + "@mail.com");
+        user.setName(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return userStorage.addUser(user).getId();
+    }
+
+    // The write and the listeners in the order the event reaches them
+    private void like(int filmId, int userId) {
+        filmStorage.addLike(filmId, userId);
+        LikeChangedEvent event = new LikeChangedEvent(filmId, userId, true);
+        likeMatrix.onLikeChanged(event);
+        service.onLikeChanged(event);
+    }
+
+    private List<Integer> recommendedIds(int userId) {
+        return service.getRecommendations(userId, 10).stream().map(Film::getId).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        likeMatrix = new LikeMatrix(filmStorage);
+        likeMatrix.build();
+        properties = new RecommendationProperties();
+        service = new RecommendationService(filmStorage, userStorage, likeMatrix,
+                new FilmSimilarityIndex(likeMatrix, new SimilarityProperties()), properties);
+    }
+
+    // ____________Tests___________
+
+    // Test: Recommendations should come in rank order and drop a film once the user likes it
+    @Test
+    void shouldRecommendInRankOrderAndForgetOwnLikes() {
+        int first = createFilm("First");
+        int second = createFilm("Second");
+        int shared = createFilm("Shared");
+        int other = createFilm("Other");
+        int user = createUser("user");
+        int close = createUser("close");
+        int far = createUser("far");
+        like(first, user);
+        like(second, user);
+        like(first, close);
+        like(second, close);
+        like(shared, close);
+        like(first, far);
+        like(other, far);
+
+        assertEquals(List.of(shared, other), recommendedIds(user));
+        like(shared, user);
+        assertEquals(List.of(other), recommendedIds(user));
+    }
+
+    // Test: The cache should stay within its size, dropping the oldest users first
+    @Test
+    void shouldKeepCacheWithinItsSize() {
+        properties.setCacheSize(4);
+        int film = createFilm("Film");
+        int liked = createFilm("Liked");
+        int neighbour = createUser("neighbour");
+        like(film, neighbour);
+        like(liked, neighbour);
+
+        for (int i = 0; i < 10; i++) {
+            int user = createUser("user" + i);
+            like(film, user);
+            assertEquals(List.of(liked), recommendedIds(user));
+            assertTrue(service.cachedUsers() <= 4, "cached " + service.cachedUsers());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    // ____________Helpers___________
+
+    // Starts `count` calls for the same key; the loader blocks until `release` opens
+    private List<Future<String>> startCalls(SingleFlight<Integer, String> flight, int count,
+                                            AtomicInteger loads, CountDownLatch release,
+                                            RuntimeException failure) {
+        List<Future<String>> calls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            calls.add(executor.submit(() -> flight.load(1, () -> {
+                loads.incrementAndGet();
+                await(release);
+                if (failure != null) {
+                    throw failure;
+                }
+                return "film";
+            })));
+        }
+        return calls;
+    }
+
+    // Waits until the first call is loading and the others have joined it
+    private static void awaitCoalesced(SingleFlight<?, ?> flight, long coalesced) throws InterruptedException {
+        for (int i = 0; i < 500 && flight.getCoalesced() < coalesced; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldShareOneLoadBetweenConcurrentCalls() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(5, TimeUnit.SECONDS);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> calls = startCalls(flight, 5, loads, release, null);
+        awaitCoalesced(flight, 4);
+        release.countDown();
+
+        for (Future<String> call : calls) {
+            assertEquals("film", call.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(5, flight.getCalls());
+        assertEquals(1, flight.getLoads());
+        assertEquals(4, flight.getCoalesced());
+    }
+
+    @Test
+    void shouldPropagateErrorToEveryWaitingCall() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(5, TimeUnit.SECONDS);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> calls = startCalls(flight, 3, loads, release, new NotFoundException("gone"));
+        awaitCoalesced(flight, 2);
+        release.countDown();
+
+        for (Future<String> call : calls) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NotFoundException.class, e.getCause());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.getFailures());
+    }
+
+    @Test
+    void shouldLoadAgainAfterPreviousLoadHasFinished() {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(5, TimeUnit.SECONDS);
+        AtomicInteger loads = new AtomicInteger();
+
+        flight.load(1, () -> "v" + loads.incrementAndGet());
+        String second = flight.load(1, () -> "v" + loads.incrementAndGet());
+
+        assertEquals("v2", second);
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    @Test
+    void shouldLoadItselfWhenWaitTimesOut() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(50, TimeUnit.MILLISECONDS);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> stuck = executor.submit(() -> flight.load(1, () -> {
+            await(release);
+            return "slow";
+        }));
+        for (int i = 0; i < 500 && flight.getLoads() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("fast", flight.load(1, () -> "fast"));
+        assertEquals(1, flight.getTimeouts());
+        assertEquals(2, flight.getLoads());
+
+        release.countDown();
+        assertEquals("slow", stuck.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldNotCoalesceDifferentKeys() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(5, TimeUnit.SECONDS);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> flight.load(1, () -> {
+            await(release);
+            return "one";
+        }));
+        for (int i = 0; i < 500 && flight.getLoads() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("two", flight.load(2, () -> "two"));
+
+        release.countDown();
+        assertEquals("one", first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, flight.getCoalesced());
+    }
+}
\ No newline at end of file
@@ -2,13 +2,16 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryFriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,11 +37,12 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        ApplicationEventPublisher events = event -> { };
         InMemoryUserStorage userStorage = new InMemoryUserStorage();
         InMemoryFriendshipStorage friendshipStorage = new InMemoryFriendshipStorage();
-        FriendshipService friendshipService = new FriendshipService(friendshipStorage, userStorage);
+        FriendshipService friendshipService = new FriendshipService(friendshipStorage, userStorage, events);
 
-        service = new UserService(userStorage, friendshipService);
+        service = new UserService(userStorage, friendshipService, events);
     }
 
     // ____________Tests___________
@@ -132,4 +136,25 @@ class UserServiceTest {
                 service.addFriend(user.getId(), user.getId()));
         assertEquals("User cannot add themselves as a friend.", exception.getMessage());
     }
+
+    // Test: Should return users by ids in the requested order and report missing ids
+    @Test
+    void shouldGetUsersByIdsInRequestedOrder() {
+        User user1 = registerUser("user1", "user1@example.com");
+        User user2 = registerUser("user2", "user2@example.com");
+
+        MultiGetResult<User> result = service.getUsersByIds(List.of(user2.getId(), 999, user1.getId(), user2.getId()));
+
+        assertEquals(List.of(user2.getId(), user1.getId()), result.getItems().stream().map(User::getId).toList());
+        assertEquals(List.of(999), result.getMissingIds());
+    }
+
+    // Test: Should reject an empty or too long id list
+    @Test
+    void shouldRejectInvalidIdLists() {
+        List<Integer> tooMany = IntStream.rangeClosed(1, 101).boxed().toList();
+
+        assertThrows(ValidationException.class, () -> service.getUsersByIds(List.of()));
+        assertThrows(ValidationException.class, () -> service.getUsersByIds(tooMany));
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
@@ -18,11 +19,12 @@ class UserServiceValidationTest {
 
     @BeforeEach
     void setUp() {
+        ApplicationEventPublisher events = event -> { };
         InMemoryUserStorage userStorage = new InMemoryUserStorage();
         InMemoryFriendshipStorage friendshipStorage = new InMemoryFriendshipStorage();
-        FriendshipService friendshipService = new FriendshipService(friendshipStorage, userStorage);
+        FriendshipService friendshipService = new FriendshipService(friendshipStorage, userStorage, events);
 
-        userService = new UserService(userStorage, friendshipService);
+        userService = new UserService(userStorage, friendshipService, events);
     }
 
     // ____________Helpers___________
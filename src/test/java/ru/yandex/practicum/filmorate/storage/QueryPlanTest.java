@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.migration.BackgroundMigrations;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs every query the DB storages issue, then EXPLAINs each of them and fails on unexpected table scans.
+// H2 records the executed statements in INFORMATION_SCHEMA.QUERY_STATISTICS, so new queries are picked up
+// as long as the storage method is exercised below. The indexes from db/background are applied first,
+// as they are in production once the application is up.
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FilmDbStorage.class, GenreDbStorage.class, MpaDbStorage.class, UserDbStorage.class,
+        FriendshipDbStorage.class})
+class QueryPlanTest {
+    private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+    private static final Pattern EXPLAINABLE = Pattern.compile("^(SELECT|INSERT|UPDATE|DELETE|MERGE)\\s.*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    // Queries that read whole tables by design, with the tables they may scan
+    private static final Map<String, Set<String>> ALLOWED_SCANS = Map.of(
+            "SELECT * FROM users", Set.of("USERS"),
+            "SELECT film_id, name, description, release_date, duration, mpa_id, mpa_name, genres, version "
+                    + "FROM film_read_model ORDER BY film_id", Set.of("FILM_READ_MODEL"),
+            "SELECT film_id, like_count FROM film_read_model", Set.of("FILM_READ_MODEL"),
+            "SELECT * FROM genres ORDER BY id", Set.of("GENRES"),
+            "SELECT * FROM mpa_ratings ORDER BY id", Set.of("MPA_RATINGS"),
+            "SELECT film_id, COUNT(*) AS likes FROM film_likes GROUP BY film_id", Set.of("FILM_LIKES"),
+            "SELECT f.id, f.release_date, f.mpa_id, fg.genre_id FROM films f "
+                    + "LEFT JOIN film_genres fg ON f.id = fg.film_id ORDER BY f.id", Set.of("FILMS"),
+            "SELECT id, name, description FROM films ORDER BY id", Set.of("FILMS"),
+            "SELECT film_id, user_id FROM film_likes", Set.of("FILM_LIKES")
+    );
+
+    @Autowired
+    private FilmDbStorage filmDbStorage;
+
+    @Autowired
+    private GenreDbStorage genreDbStorage;
+
+    @Autowired
+    private MpaDbStorage mpaDbStorage;
+
+    @Autowired
+    private UserDbStorage userDbStorage;
+
+    @Autowired
+    private FriendshipDbStorage friendshipDbStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    // ----------- Helpers -----------
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return userDbStorage.addUser(user);
+    }
+
+    private Film createFilm() {
+        Film film = new Film();
+        film.setName("Inception");
+        film.setDescription("A mind-bending thriller");
+        film.setReleaseDate(LocalDate.of(2010, 7, 16));
+        film.setDuration(148);
+        film.setMpa(new MpaRating(1, null));
+        film.setGenres(Set.of(new Genre(1, null)));
+        return filmDbStorage.addFilm(film);
+    }
+
+    // Calls every storage method once
+    private void exerciseStorages() {
+        User user = createUser("first");
+        User friend = createUser("second");
+        user.setName("Renamed");
+        userDbStorage.updateUser(user);
+        user.setVersion(-1L);
+        assertThrows(ConflictException.class, () -> userDbStorage.updateUser(user));
+        userDbStorage.getAllUsers();
+        userDbStorage.getUsersByIds(List.of(user.getId(), friend.getId()));
+        userDbStorage.findUserIds(List.of(user.getId(), friend.getId()));
+
+        Film film = createFilm();
+        film.setDuration(150);
+        filmDbStorage.updateFilm(film);
+        film.setVersion(-1L);
+        assertThrows(ConflictException.class, () -> filmDbStorage.updateFilm(film));
+        filmDbStorage.getAllFilms();
+        filmDbStorage.getFilmsByIds(List.of(film.getId(), film.getId() + 1));
+        filmDbStorage.addLike(film.getId(), user.getId());
+        filmDbStorage.removeLike(film.getId(), user.getId());
+        filmDbStorage.findFilmIds(List.of(film.getId(), film.getId() + 1));
+        filmDbStorage.applyLikes(List.of(
+                new LikeOperation(film.getId(), user.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film.getId(), user.getId(), LikeOperation.Action.UNLIKE)));
+        filmDbStorage.getLikeCounts();
+        filmDbStorage.getFilmFacets();
+        filmDbStorage.getFilmTexts();
+        filmDbStorage.forEachLike((filmId, userId) -> { });
+
+        genreDbStorage.getAllGenres();
+        genreDbStorage.getGenreById(1);
+        mpaDbStorage.getAllRatings();
+        mpaDbStorage.getRatingById(1);
+
+        friendshipDbStorage.add(new Friendship(user.getId(), friend.getId(), false));
+        friendshipDbStorage.update(new Friendship(user.getId(), friend.getId(), true));
+        friendshipDbStorage.getFriendshipsByUserId(user.getId());
+        friendshipDbStorage.getFollowerIds(friend.getId());
+        friendshipDbStorage.remove(new Friendship(user.getId(), friend.getId(), true));
+    }
+
+    // Plan of a statement; parameters are bound to NULL, H2 plans them before the values are known
+    private String explain(String sql) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setNull(i, Types.NULL);
+            }
+            return statement;
+        }, rs -> rs.next() ? rs.getString(1) : "");
+    }
+
+    // ----------- Tests -----------
+
+    // Test: no storage query scans a table unless it reads the whole table by design
+    @Test
+    void storageQueriesShouldUseIndexes() {
+        new BackgroundMigrations(dataSource).migrate();
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES " +
+                "WHERE INDEX_NAME = 'IDX_FILM_LIKES_USER'", Integer.class));
+
+        // Turning the statistics off clears them, so they are read before that
+        List<String> statements;
+        jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+        try {
+            exerciseStorages();
+            statements = jdbcTemplate.queryForList(
+                    "SELECT SQL_STATEMENT FROM INFORMATION_SCHEMA.QUERY_STATISTICS", String.class);
+        } finally {
+            jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        }
+
+        List<String> failures = new ArrayList<>();
+        int explained = 0;
+        for (String sql : statements) {
+            if (!EXPLAINABLE.matcher(sql.strip()).matches() || sql.contains("INFORMATION_SCHEMA")) {
+                continue;
+            }
+            String plan = explain(sql);
+            explained++;
+            Set<String> scanned = new TreeSet<>();
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+            while (matcher.find()) {
+                scanned.add(matcher.group(1));
+            }
+            scanned.removeAll(ALLOWED_SCANS.getOrDefault(sql, Set.of()));
+            if (!scanned.isEmpty()) {
+                failures.add(sql + " scans " + scanned + ":\n" + plan);
+            }
+        }
+
+        assertTrue(explained >= 15, "Expected every storage query to be recorded, got " + statements);
+        assertTrue(failures.isEmpty(), String.join("\n\n", failures));
+    }
+}
\ No newline at end of file
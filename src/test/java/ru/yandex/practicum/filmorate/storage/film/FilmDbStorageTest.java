@@ -5,10 +5,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmStamp;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
@@ -17,6 +21,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -31,6 +36,9 @@ class FilmDbStorageTest {
     @Autowired
     private UserDbStorage userDbStorage;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     // ----------- Helpers -----------
 
     // Create a sample film with minimal valid data
@@ -108,6 +116,57 @@ class FilmDbStorageTest {
         assertEquals(150, updatedFilm.getDuration());
     }
 
+    // Test: An update with a stale version should be rejected and leave the film as it is
+    @Test
+    void shouldRejectUpdateWithStaleVersion() {
+        Film savedFilm = filmDbStorage.addFilm(createSampleFilm());
+        long readVersion = savedFilm.getVersion();
+
+        savedFilm.setName("First writer");
+        Film updatedFilm = filmDbStorage.updateFilm(savedFilm);
+        assertEquals(readVersion + 1, updatedFilm.getVersion());
+
+        Film stale = filmDbStorage.getFilmById(savedFilm.getId()).get();
+        stale.setName("Second writer");
+        stale.setVersion(readVersion);
+        assertThrows(ConflictException.class, () -> filmDbStorage.updateFilm(stale));
+        assertEquals("First writer", filmDbStorage.getFilmById(savedFilm.getId()).get().getName());
+
+        stale.setId(9999);
+        assertThrows(NotFoundException.class, () -> filmDbStorage.updateFilm(stale));
+    }
+
+    // Test: Reads should see the resolved MPA and genres and every like change through the read model
+    @Test
+    void shouldKeepReadModelInStepWithWrites() {
+        Film savedFilm = filmDbStorage.addFilm(createSampleFilm());
+        User user = createSampleUser();
+        assertNotNull(savedFilm.getMpa().getName());
+        assertNotNull(savedFilm.getGenres().iterator().next().getName());
+
+        savedFilm.setGenres(Set.of(new Genre(1, null), new Genre(2, null)));
+        filmDbStorage.updateFilm(savedFilm);
+        filmDbStorage.addLike(savedFilm.getId(), user.getId());
+        Film loaded = filmDbStorage.getFilmById(savedFilm.getId()).orElseThrow();
+        assertEquals(List.of(1, 2), loaded.getGenres().stream().map(Genre::getId).toList());
+        assertEquals(Set.of(user.getId()), loaded.getLikes());
+        assertEquals(savedFilm.getVersion(), loaded.getVersion());
+
+        assertEquals(1, filmDbStorage.getLikeCounts().get(savedFilm.getId()));
+
+        filmDbStorage.applyLikes(List.of(
+                new LikeOperation(savedFilm.getId(), user.getId(), LikeOperation.Action.UNLIKE)));
+        assertTrue(filmDbStorage.getFilmsByIds(List.of(savedFilm.getId())).get(0).getLikes().isEmpty());
+        assertEquals(0, filmDbStorage.getLikeCounts().get(savedFilm.getId()));
+
+        // Films the migration left uncounted, as their likes may be on shards, are counted on the first read
+        filmDbStorage.addLike(savedFilm.getId(), user.getId());
+        jdbcTemplate.update("UPDATE film_read_model SET like_count = NULL WHERE film_id = ?", savedFilm.getId());
+        assertEquals(1, filmDbStorage.getLikeCounts().get(savedFilm.getId()));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT like_count FROM film_read_model WHERE film_id = ?",
+                Integer.class, savedFilm.getId()));
+    }
+
     // Test: Like should be added successfully
     @Test
     void shouldAddLikeSuccessfully() {
@@ -143,6 +202,23 @@ class FilmDbStorageTest {
         );
     }
 
+    // Test: Stamps read from the read model alone should match the films as loaded
+    @Test
+    void shouldReadStampsMatchingLoadedFilms() {
+        Film first = filmDbStorage.addFilm(createSampleFilm());
+        Film second = filmDbStorage.addFilm(createSampleFilm());
+        filmDbStorage.addLike(first.getId(), createSampleUser().getId());
+        first.setVersion(null);
+        filmDbStorage.updateFilm(first);
+
+        List<FilmStamp> stamps = filmDbStorage.getFilmStamps(List.of(first.getId(), second.getId(), 999));
+
+        assertEquals(Set.of(new FilmStamp(first.getId(), 1, 1), new FilmStamp(second.getId(), 0, 0)),
+                Set.copyOf(stamps));
+        assertEquals(Set.copyOf(stamps), filmDbStorage.getFilmsByIds(List.of(first.getId(), second.getId()))
+                .stream().map(FilmStamp::of).collect(Collectors.toSet()));
+    }
+
     // Test: Like should be removed successfully
     @Test
     void shouldRemoveLikeSuccessfully() {
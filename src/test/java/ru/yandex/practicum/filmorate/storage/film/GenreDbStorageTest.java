@@ -48,7 +48,7 @@ class GenreDbStorageTest {
 
         assertNotNull(genre);
         assertEquals(1, genre.getId());
-        assertEquals("Комедия", genre.getName()); // Matches data.sql
+        assertEquals("Комедия", genre.getName()); // Matches V2__reference_data.sql
     }
 
     // Test: Getting non-existing genre should throw NotFoundException
@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The buffer writes from its own connection, so the test data has to be committed
+@JdbcTest
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.flush-interval=1h"
+})
+@EnableConfigurationProperties(LikeBufferProperties.class)
+@Import({FilmDbStorage.class, UserDbStorage.class, LikeWriteBehindBuffer.class})
+class LikeWriteBehindBufferTest {
+
+    @Autowired
+    private FilmDbStorage filmDbStorage;
+
+    @Autowired
+    private UserDbStorage userDbStorage;
+
+    @Autowired
+    private LikeWriteBehindBuffer likeBuffer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Film film;
+    private User user;
+
+    // ----------- Helpers -----------
+
+    private int likesInDatabase() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes WHERE film_id = ? AND user_id = ?",
+                Integer.class, film.getId(), user.getId());
+    }
+
+    @BeforeEach
+    void setUp() {
+        Film newFilm = new Film();
+        newFilm.setName("Premiere");
+        newFilm.setDescription("Everybody likes it");
+        newFilm.setReleaseDate(LocalDate.of(2024, 1, 1));
+        newFilm.setDuration(120);
+        newFilm.setMpa(new MpaRating(1, null));
+        film = filmDbStorage.addFilm(newFilm);
+
+        User newUser = new User();
+        newUser.setEmail("fan@mail.com");
+        newUser.setLogin("fan");
+        newUser.setName("Fan");
+        newUser.setBirthday(LocalDate.of(2000, 1, 1));
+        user = userDbStorage.addUser(newUser);
+    }
+
+    // ----------- Tests -----------
+
+    // Test: A like should be visible at once and reach the table on flush
+    @Test
+    void shouldShowPendingLikeAndWriteItOnFlush() {
+        filmDbStorage.addLike(film.getId(), user.getId());
+
+        assertTrue(filmDbStorage.getFilmById(film.getId()).get().getLikes().contains(user.getId()));
+        assertEquals(1, filmDbStorage.getLikeCounts().get(film.getId()));
+        assertEquals(0, likesInDatabase());
+
+        likeBuffer.flush();
+
+        assertEquals(1, likesInDatabase());
+    }
+
+    // Test: A like taken back before the flush should never be written
+    @Test
+    void shouldCancelLikeFollowedByUnlike() {
+        filmDbStorage.addLike(film.getId(), user.getId());
+        filmDbStorage.removeLike(film.getId(), user.getId());
+        likeBuffer.flush();
+
+        assertEquals(0, likesInDatabase());
+        assertFalse(filmDbStorage.getFilmById(film.getId()).get().getLikes().contains(user.getId()));
+    }
+
+    // Test: Pending changes should be validated like written ones
+    @Test
+    void shouldValidateAgainstPendingChanges() {
+        filmDbStorage.addLike(film.getId(), user.getId());
+
+        assertThrows(ValidationException.class, () -> filmDbStorage.addLike(film.getId(), user.getId()));
+
+        likeBuffer.flush();
+        filmDbStorage.removeLike(film.getId(), user.getId());
+
+        assertThrows(NotFoundException.class, () -> filmDbStorage.removeLike(film.getId(), user.getId()));
+        likeBuffer.flush();
+        assertEquals(0, likesInDatabase());
+    }
+
+    // Test: Once a film's likes are known, changes should be validated in memory, not against the table
+    @Test
+    void shouldValidateInMemoryAfterFirstChange() {
+        filmDbStorage.addLike(film.getId(), user.getId());
+        likeBuffer.flush();
+        assertEquals(1, likesInDatabase());
+
+        // Removed behind the buffer's back: the buffer still knows the like it has written
+        jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ?", film.getId());
+        assertThrows(ValidationException.class, () -> filmDbStorage.addLike(film.getId(), user.getId()));
+        filmDbStorage.removeLike(film.getId(), user.getId());
+    }
+
+    // Test: The stored likes of a film should be dropped after a flush without its changes and read again
+    @Test
+    void shouldDropStoredLikesOfIdleFilm() {
+        filmDbStorage.addLike(film.getId(), user.getId());
+        likeBuffer.flush();
+        assertTrue(likeBuffer.storedFilms().contains(film.getId()));
+
+        likeBuffer.flush();
+        assertFalse(likeBuffer.storedFilms().contains(film.getId()));
+
+        // Read again from the table on the next change
+        assertThrows(ValidationException.class, () -> filmDbStorage.addLike(film.getId(), user.getId()));
+        assertTrue(likeBuffer.storedFilms().contains(film.getId()));
+        filmDbStorage.removeLike(film.getId(), user.getId());
+        likeBuffer.flush();
+        assertEquals(0, likesInDatabase());
+    }
+
+    // Test: With GROUP_COMMIT a change that cannot be written in time should fail the call and be taken back
+    @Test
+    void shouldTakeBackChangeThatCouldNotBeWritten() throws InterruptedException {
+        LikeBufferProperties properties = new LikeBufferProperties();
+        properties.setDurability(LikeBufferProperties.Durability.GROUP_COMMIT);
+        properties.setFlushInterval(Duration.ofMillis(20));
+        properties.setCommitTimeout(Duration.ofMillis(300));
+        LikeWriteBehindBuffer groupCommit = new LikeWriteBehindBuffer(jdbcTemplate, properties,
+                new StaticListableBeanFactory().getBeanProvider(ShardedLikeStore.class));
+        int missingFilmId = film.getId() + 1000; // the insert breaks the foreign key on every attempt
+        try {
+            groupCommit.like(film.getId(), user.getId());
+            assertEquals(1, likesInDatabase());
+
+            assertThrows(ServiceUnavailableException.class, () -> groupCommit.like(missingFilmId, user.getId()));
+            assertTrue(groupCommit.overlay(missingFilmId, new HashSet<>()).isEmpty());
+        } finally {
+            groupCommit.drain();
+        }
+    }
+
+    // Test: With GROUP_COMMIT a change recorded inside a transaction should be waited for only after it
+    @Test
+    void shouldWaitForGroupCommitAfterTransaction() throws InterruptedException {
+        LikeBufferProperties properties = new LikeBufferProperties();
+        properties.setDurability(LikeBufferProperties.Durability.GROUP_COMMIT);
+        properties.setFlushInterval(Duration.ofHours(1));
+        properties.setCommitTimeout(Duration.ofSeconds(10));
+        LikeWriteBehindBuffer groupCommit = new LikeWriteBehindBuffer(jdbcTemplate, properties,
+                new StaticListableBeanFactory().getBeanProvider(ShardedLikeStore.class));
+        TransactionTemplate transactions = new TransactionTemplate(
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        try {
+            // Returns without a flush, which would otherwise be waited for up to the commit timeout
+            transactions.executeWithoutResult(status -> groupCommit.like(film.getId(), user.getId()));
+            assertEquals(0, likesInDatabase());
+
+            groupCommit.flush();
+            groupCommit.awaitDeferred();
+            assertEquals(1, likesInDatabase());
+
+            // Nothing is left to wait for after a rollback
+            transactions.executeWithoutResult(status -> {
+                groupCommit.unlike(film.getId(), user.getId());
+                status.setRollbackOnly();
+            });
+            assertTimeout(Duration.ofSeconds(1), groupCommit::awaitDeferred); // on this thread, as it is thread-bound
+        } finally {
+            groupCommit.drain();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapFilmStorageTest {
+    // A tiny threshold, so that compaction runs after a few updates
+    private final OffHeapFilmStorage storage = new OffHeapFilmStorage(64);
+
+    // ____________Helpers___________
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание фильма " + name);
+        film.setReleaseDate(LocalDate.of(1979, 5, 25));
+        film.setDuration(161);
+        film.setMpa(new MpaRating(2, "PG"));
+        film.setGenres(new LinkedHashSet<>(List.of(new Genre(2, "Драма"), new Genre(4, "Триллер"))));
+        return storage.addFilm(film);
+    }
+
+    // ____________Tests___________
+
+    // Test: A film should come back with every field, the MPA and genre names included
+    @Test
+    void shouldReturnFilmAsItWasAdded() {
+        Film saved = createFilm("Сталкер");
+
+        Film loaded = storage.getFilmById(saved.getId()).orElseThrow();
+        assertEquals("Сталкер", loaded.getName());
+        assertEquals("Описание фильма Сталкер", loaded.getDescription());
+        assertEquals(LocalDate.of(1979, 5, 25), loaded.getReleaseDate());
+        assertEquals(161, loaded.getDuration());
+        assertEquals(new MpaRating(2, "PG"), loaded.getMpa());
+        assertEquals(List.of("Драма", "Триллер"), loaded.getGenres().stream().map(Genre::getName).toList());
+        assertEquals(0L, loaded.getVersion());
+        assertTrue(storage.getFilmById(saved.getId() + 1).isEmpty());
+    }
+
+    // Test: Likes should be kept as a set, with duplicates rejected and counts read from the records
+    @Test
+    void shouldKeepLikesAsSortedSet() {
+        Film film = createFilm("Solaris");
+        for (int userId : new int[]{5, 3, 9, 1, 7}) {
+            storage.addLike(film.getId(), userId);
+        }
+        assertThrows(ValidationException.class, () -> storage.addLike(film.getId(), 3));
+        assertThrows(NotFoundException.class, () -> storage.addLike(film.getId() + 1, 3));
+        storage.removeLike(film.getId(), 7);
+
+        List<Integer> likes = new ArrayList<>();
+        storage.forEachLike((filmId, userId) -> likes.add(userId));
+        assertEquals(List.of(1, 3, 5, 9), likes);
+        assertEquals(Set.of(1, 3, 5, 9), storage.getFilmById(film.getId()).orElseThrow().getLikes());
+        assertEquals(Map.of(film.getId(), 4), storage.getLikeCounts());
+
+        boolean[] changed = storage.applyLikes(List.of(
+                new LikeOperation(film.getId(), 1, LikeOperation.Action.LIKE),
+                new LikeOperation(film.getId(), 2, LikeOperation.Action.LIKE),
+                new LikeOperation(film.getId(), 9, LikeOperation.Action.UNLIKE)));
+        assertArrayEquals(new boolean[]{false, true, true}, changed);
+    }
+
+    // Test: Updates should check the version and keep the likes; compaction should not lose anything
+    @Test
+    void shouldSurviveUpdatesAndCompaction() {
+        Film film = createFilm("Mirror");
+        Film other = createFilm("Ivan's Childhood");
+        for (int userId = 1; userId <= 100; userId++) {
+            storage.addLike(film.getId(), userId);
+        }
+        for (int i = 0; i < 50; i++) {
+            film.setName("Mirror, take " + i);
+            film = storage.updateFilm(film);
+        }
+
+        Film stale = storage.getFilmById(film.getId()).orElseThrow();
+        stale.setVersion(3L);
+        assertThrows(ConflictException.class, () -> storage.updateFilm(stale));
+
+        Film loaded = storage.getFilmById(film.getId()).orElseThrow();
+        assertEquals("Mirror, take 49", loaded.getName());
+        assertEquals(50L, loaded.getVersion());
+        assertEquals(100, loaded.getLikes().size());
+        assertEquals("Ivan's Childhood", storage.getFilmById(other.getId()).orElseThrow().getName());
+        assertEquals(2, storage.getFilmTexts().size());
+        assertEquals(Set.of(2, 4), Set.copyOf(storage.getFilmFacets().get(1).getGenres().stream()
+                .map(Genre::getId).toList()));
+    }
+
+    // Test: Likes added one by one should not leave the like arrays they have grown out of behind
+    @Test
+    void shouldCompactLikeArraysGrownByLikes() {
+        OffHeapFilmStorage uncompacted = new OffHeapFilmStorage(Long.MAX_VALUE);
+        List<Integer> films = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            films.add(createFilm("Film " + i).getId());
+            uncompacted.addFilm(storage.getFilmById(films.get(i)).orElseThrow());
+        }
+        for (int userId = 1; userId <= 5_000; userId++) {
+            for (int filmId : films) {
+                storage.addLike(filmId, userId);
+                uncompacted.addLike(filmId, userId);
+            }
+        }
+
+        assertTrue(storage.getGarbageBytes() * 2 < uncompacted.getGarbageBytes());
+        assertEquals(uncompacted.getLikeCounts(), storage.getLikeCounts());
+        assertEquals(5_000, storage.getFilmById(films.get(7)).orElseThrow().getLikes().size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Three in-memory H2 databases stand in for the shards
+class ShardedLikeStoreTest {
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private ShardedLikeStore store;
+
+    // ____________Helpers___________
+
+    private int rowsIn(int shard) {
+        return new JdbcTemplate(dataSources.get(shard)).queryForObject("SELECT COUNT(*) FROM film_likes",
+                Integer.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            dataSources.add(new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard" + i + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        }
+        store = new ShardedLikeStore(dataSources);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+    }
+
+    // ____________Tests___________
+
+    // Test: All likes of a film should be written to the film's own shard
+    @Test
+    void shouldKeepLikesOfFilmInOneShard() {
+        store.add(7, 1);
+        store.add(7, 2);
+
+        int shard = store.shardOf(7);
+        for (int i = 0; i < store.getShardCount(); i++) {
+            assertEquals(i == shard ? 2 : 0, rowsIn(i));
+        }
+        assertEquals(Set.of(1, 2), store.likesOf(7));
+        assertTrue(store.contains(7, 2));
+
+        store.remove(7, 2);
+        assertFalse(store.contains(7, 2));
+    }
+
+    // Test: Consecutive film ids should be spread over all shards
+    @Test
+    void shouldSpreadFilmsOverShards() {
+        Set<Integer> used = new HashSet<>();
+        for (int filmId = 1; filmId <= 30; filmId++) {
+            used.add(store.shardOf(filmId));
+        }
+        assertEquals(Set.of(0, 1, 2), used);
+    }
+
+    // Test: A batch spanning shards should report each operation in its original position
+    @Test
+    void shouldApplyBatchAcrossShards() {
+        store.add(2, 1);
+
+        boolean[] changed = store.apply(List.of(
+                new LikeOperation(1, 1, LikeOperation.Action.LIKE),
+                new LikeOperation(2, 1, LikeOperation.Action.LIKE),
+                new LikeOperation(3, 1, LikeOperation.Action.LIKE),
+                new LikeOperation(2, 1, LikeOperation.Action.UNLIKE),
+                new LikeOperation(4, 1, LikeOperation.Action.UNLIKE)));
+
+        assertArrayEquals(new boolean[]{true, false, true, true, false}, changed);
+        assertEquals(Map.of(1, Set.of(1), 3, Set.of(1)), store.likesOf(List.of(1, 2, 3, 4)));
+    }
+
+    // Test: Counts and the full scan should cover every shard
+    @Test
+    void shouldMergeCountsAndScansOfAllShards() {
+        Map<Integer, Set<Integer>> expected = new HashMap<>();
+        for (int filmId = 1; filmId <= 10; filmId++) {
+            for (int userId = 1; userId <= filmId; userId++) {
+                store.add(filmId, userId);
+                expected.computeIfAbsent(filmId, id -> new HashSet<>()).add(userId);
+            }
+        }
+
+        Map<Integer, Integer> counts = store.countByFilm();
+        for (int filmId = 1; filmId <= 10; filmId++) {
+            assertEquals(filmId, counts.get(filmId));
+        }
+
+        Map<Integer, Set<Integer>> scanned = new HashMap<>();
+        store.forEach((filmId, userId) -> scanned.computeIfAbsent(filmId, id -> new HashSet<>()).add(userId));
+        assertEquals(expected, scanned);
+    }
+
+    // Test: Buffered writes should be routed by film and be safe to repeat
+    @Test
+    void shouldWriteBatchesIdempotently() {
+        List<Object[]> inserts = List.of(new Object[]{1, 5}, new Object[]{2, 5}, new Object[]{3, 5});
+        store.write(inserts, List.of());
+        store.write(inserts, List.<Object[]>of(new Object[]{2, 5}));
+
+        assertEquals(Map.of(1, 1, 3, 1), store.countByFilm());
+    }
+
+    // Test: A batch that fails part way should leave nothing of it behind on the shard
+    @Test
+    void shouldRollBackFailedBatchOnShard() {
+        store.add(7, 2);
+
+        assertThrows(RuntimeException.class, () -> store.apply(List.of(
+                new LikeOperation(7, 1, LikeOperation.Action.LIKE),
+                new LikeOperation(7, 2, LikeOperation.Action.UNLIKE),
+                new LikeOperation(7, null, LikeOperation.Action.LIKE)))); // fails while the batch is bound
+
+        assertEquals(Set.of(2), store.likesOf(7));
+    }
+
+    // Test: Sharding should not be switched on over likes that are still in the main database
+    @Test
+    void shouldRefuseMainDatabaseWithLikes() {
+        JdbcTemplate main = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:main-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        main.execute("CREATE TABLE film_likes (film_id INT NOT NULL, user_id INT NOT NULL)");
+        assertDoesNotThrow(() -> ShardedLikeStore.requireNoMainLikes(main));
+
+        main.update("INSERT INTO film_likes (film_id, user_id) VALUES (1, 1)");
+        assertThrows(IllegalStateException.class, () -> ShardedLikeStore.requireNoMainLikes(main));
+    }
+
+    // Test: Counts that missed a like written to a shard should be corrected on the first read, and only then
+    @Test
+    void shouldCorrectReadModelCountsFromShardsOnFirstRead() {
+        DataSource mainDataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:main-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(mainDataSource).locations("classpath:db/migration").load().migrate();
+        JdbcTemplate main = new JdbcTemplate(mainDataSource);
+        FilmReadModel readModel = new FilmReadModel(main, store, null);
+        List<Integer> films = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            main.update("INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                    "VALUES ('Film', 'Description', DATE '2000-01-01', 100, 1)");
+            films.add(main.queryForObject("SELECT MAX(id) FROM films", Integer.class));
+            readModel.filmChanged(films.get(i));
+        }
+        readModel.likesChanged(films.get(0), 1);
+        store.add(films.get(0), 1);
+        store.add(films.get(1), 1); // its main transaction failed after the shard write: the count stayed at 0
+
+        assertEquals(Map.of(films.get(0), 1, films.get(1), 1), readModel.likeCounts());
+        assertEquals(1, main.queryForObject("SELECT like_count FROM film_read_model WHERE film_id = ?",
+                Integer.class, films.get(1)));
+
+        store.add(films.get(1), 2);
+        assertEquals(Map.of(films.get(0), 1, films.get(1), 1), readModel.likeCounts());
+    }
+}
\ No newline at end of file
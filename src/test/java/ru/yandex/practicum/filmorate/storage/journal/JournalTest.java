@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    // ____________Helpers___________
+
+    private Journal open(boolean syncWrites) throws IOException {
+        return new Journal(directory, "test", SEGMENT_SIZE, Duration.ofMillis(10), syncWrites);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldReplayRecordsAcrossSegmentsAfterReopen() throws IOException {
+        try (Journal journal = open(true)) {
+            long lsn = 0;
+            for (int i = 0; i < 500; i++) {
+                lsn = journal.append(1, new RecordWriter().writeInt(i).writeString("film " + i).toByteArray());
+            }
+            journal.commit(lsn);
+        }
+        assertTrue(segmentCount() > 1);
+
+        List<String> names = new ArrayList<>();
+        try (Journal journal = open(false)) {
+            long replayed = journal.replay(0, (type, record) -> {
+                assertEquals(1, type);
+                assertEquals(names.size(), record.readInt());
+                names.add(record.readString());
+            });
+            assertEquals(500, replayed);
+        }
+        assertEquals("film 499", names.get(499));
+    }
+
+    @Test
+    void shouldDeleteSegmentsCoveredByLsn() throws IOException {
+        try (Journal journal = open(false)) {
+            for (int i = 0; i < 500; i++) {
+                journal.append(1, new RecordWriter().writeInt(i).toByteArray());
+            }
+            journal.deleteSegmentsBefore(journal.currentLsn());
+        }
+        assertEquals(1, segmentCount());
+    }
+
+    @Test
+    void shouldRoundTripNullStrings() throws IOException {
+        try (Journal journal = open(false)) {
+            journal.append(2, new RecordWriter().writeString(null).writeString("").toByteArray());
+            journal.replay(0, (type, record) -> {
+                assertNull(record.readString());
+                assertEquals("", record.readString());
+            });
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotsTest {
+    @TempDir
+    Path directory;
+
+    // ____________Helpers___________
+
+    private Film addFilm(InMemoryFilmStorage storage, String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return storage.addFilm(film);
+    }
+
+    private List<Path> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".snap")).sorted().toList();
+        }
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldRestoreFilmsAndLikesFromSnapshot() throws IOException {
+        InMemoryFilmStorage source = new InMemoryFilmStorage();
+        Film first = addFilm(source, "First");
+        addFilm(source, "Second");
+        source.addLike(first.getId(), 7);
+        new Snapshots(directory, "films").write(42, source);
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage();
+        long lsn = new Snapshots(directory, "films").load(restored);
+
+        assertEquals(42, lsn);
+        assertEquals(2, restored.getAllFilms().size());
+        assertEquals(Set.of(7), restored.getFilmById(first.getId()).orElseThrow().getLikes());
+        assertEquals(3, addFilm(restored, "Third").getId());
+    }
+
+    @Test
+    void shouldFallBackToOlderSnapshotWhenNewestIsDamaged() throws IOException {
+        InMemoryFilmStorage source = new InMemoryFilmStorage();
+        addFilm(source, "First");
+        Snapshots snapshots = new Snapshots(directory, "films");
+        snapshots.write(10, source);
+        addFilm(source, "Second");
+        snapshots.write(20, source);
+
+        Path newest = snapshotFiles().get(1);
+        try (FileChannel file = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.wrap(new byte[]{0x55}), 30);
+        }
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage();
+        assertEquals(10, snapshots.load(restored));
+        assertEquals(1, restored.getAllFilms().size());
+    }
+
+    @Test
+    void shouldKeepOnlyNewestSnapshots() throws IOException {
+        InMemoryFilmStorage source = new InMemoryFilmStorage();
+        Snapshots snapshots = new Snapshots(directory, "films");
+        snapshots.write(1, source);
+        snapshots.write(2, source);
+        snapshots.write(3, source);
+
+        assertEquals(2, snapshots.retain(2));
+        assertEquals(2, snapshotFiles().size());
+    }
+}
\ No newline at end of file
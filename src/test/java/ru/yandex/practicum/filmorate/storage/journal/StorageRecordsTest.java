@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageRecordsTest {
+    @TempDir
+    Path directory;
+
+    // ____________Helpers___________
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static Film copy(Film film) {
+        RecordWriter out = new RecordWriter();
+        StorageRecords.writeFilm(out, film);
+        return StorageRecords.readFilm(new RecordReader(out.toByteArray()));
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldKeepFilmAndUserVersions() {
+        Film film = film("Film");
+        film.setId(3);
+        film.setVersion(7L);
+        film.setLikes(Set.of(1, 2));
+        User user = new User();
+        user.setId(5);
+        user.setEmail("user@mail.ru");
+        user.setLogin("user");
+        user.setVersion(4L);
+        RecordWriter out = new RecordWriter();
+        StorageRecords.writeUser(out, user);
+
+        Film restoredFilm = copy(film);
+        User restoredUser = StorageRecords.readUser(new RecordReader(out.toByteArray()));
+
+        assertEquals(3, restoredFilm.getId());
+        assertEquals(7L, restoredFilm.getVersion());
+        assertEquals(Set.of(1, 2), restoredFilm.getLikes());
+        assertEquals(5, restoredUser.getId());
+        assertEquals(4L, restoredUser.getVersion());
+    }
+
+    // Test: records written before the format byte still replay, with version 0
+    @Test
+    void shouldReadRecordsWithoutFormatByte() {
+        RecordWriter film = new RecordWriter()
+                .writeInt(2).writeString("Old").writeString("Description")
+                .writeLong(LocalDate.of(2000, 1, 1).toEpochDay()).writeInt(90)
+                .writeBoolean(false)
+                .writeInt(0)
+                .writeInt(1).writeInt(9);
+        RecordWriter user = new RecordWriter()
+                .writeInt(6).writeString("old@mail.ru").writeString("old").writeString(null)
+                .writeLong(Long.MIN_VALUE)
+                .writeInt(0);
+
+        Film restoredFilm = StorageRecords.readFilm(new RecordReader(film.toByteArray()));
+        User restoredUser = StorageRecords.readUser(new RecordReader(user.toByteArray()));
+
+        assertEquals(2, restoredFilm.getId());
+        assertEquals("Old", restoredFilm.getName());
+        assertEquals(90, restoredFilm.getDuration());
+        assertEquals(Set.of(9), restoredFilm.getLikes());
+        assertEquals(0L, restoredFilm.getVersion());
+        assertEquals(6, restoredUser.getId());
+        assertEquals("old", restoredUser.getLogin());
+        assertNull(restoredUser.getBirthday());
+        assertEquals(0L, restoredUser.getVersion());
+    }
+
+    // Test: a compare-and-set against the version seen before a restart still applies after the restore
+    @Test
+    void shouldRestoreVersionFromSnapshot() throws IOException {
+        InMemoryFilmStorage source = new InMemoryFilmStorage();
+        Film film = source.addFilm(film("Film"));
+        Film update = film("Renamed");
+        update.setId(film.getId());
+        source.updateFilm(update);
+        new Snapshots(directory, "films").write(1, source);
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage();
+        new Snapshots(directory, "films").load(restored);
+
+        assertEquals(1L, restored.getFilmById(film.getId()).orElseThrow().getVersion());
+        Film stale = film("Stale");
+        stale.setId(film.getId());
+        stale.setVersion(0L);
+        assertThrows(ConflictException.class, () -> restored.updateFilm(stale));
+        Film current = film("Current");
+        current.setId(film.getId());
+        current.setVersion(1L);
+        assertEquals(2L, restored.updateFilm(current).getVersion());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.storage.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Three in-memory H2 databases stand in for the primary and two replicas; each knows its own name
+class RoutingDataSourceTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(2), clock::get);
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    // ____________Helpers___________
+
+    private static DataSource node(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String nodeName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RoutingDataSource routing = new RoutingDataSource(node("primary"),
+                List.of(node("replica1"), node("replica2")), readYourWrites);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readYourWrites.unpin();
+    }
+
+    // ____________Tests___________
+
+    // Test: Read-only transactions should go to the replicas in turn
+    @Test
+    void shouldRouteReadOnlyTransactionsToReplicasInTurn() {
+        assertEquals("replica1", readOnly.execute(status -> nodeName()));
+        assertEquals("replica2", readOnly.execute(status -> nodeName()));
+        assertEquals("replica1", readOnly.execute(status -> nodeName()));
+    }
+
+    // Test: Writes and reads outside read-only transactions should go to the primary
+    @Test
+    void shouldRouteEverythingElseToPrimary() {
+        assertEquals("primary", nodeName());
+        assertEquals("primary", readWrite.execute(status -> nodeName()));
+    }
+
+    // Test: A read-only transaction should keep one node for all its statements
+    @Test
+    void shouldKeepOneNodePerTransaction() {
+        assertEquals(List.of("replica1", "replica1"), readOnly.execute(status -> List.of(nodeName(), nodeName())));
+    }
+
+    // Test: A pinned thread should read from the primary
+    @Test
+    void shouldRoutePinnedReadsToPrimary() {
+        readYourWrites.pin();
+        assertEquals("primary", readOnly.execute(status -> nodeName()));
+
+        readYourWrites.unpin();
+        assertEquals("replica1", readOnly.execute(status -> nodeName()));
+    }
+
+    // Test: A client should count as having written recently only within the lag window
+    @Test
+    void shouldRememberWritesForLagWindow() {
+        readYourWrites.writeCompleted("client");
+
+        assertTrue(readYourWrites.wroteRecently("client"));
+        assertFalse(readYourWrites.wroteRecently("other"));
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertFalse(readYourWrites.wroteRecently("client"));
+    }
+}
\ No newline at end of file
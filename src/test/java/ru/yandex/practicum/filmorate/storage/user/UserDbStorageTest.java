@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
@@ -91,6 +92,23 @@ class UserDbStorageTest {
         assertEquals("updated@mail.com", updatedUser.getEmail());
     }
 
+    // Test: An update with a stale version should be rejected; one without a version should overwrite
+    @Test
+    void shouldCompareVersionsOnUpdate() {
+        User savedUser = userDbStorage.addUser(createSampleUser());
+        long readVersion = savedUser.getVersion();
+        userDbStorage.updateUser(savedUser);
+
+        savedUser.setName("Stale");
+        savedUser.setVersion(readVersion);
+        assertThrows(ConflictException.class, () -> userDbStorage.updateUser(savedUser));
+
+        savedUser.setVersion(null);
+        User updatedUser = userDbStorage.updateUser(savedUser);
+        assertEquals("Stale", updatedUser.getName());
+        assertEquals(readVersion + 2, updatedUser.getVersion());
+    }
+
     // Test: Updating non-existing user should throw NotFoundException
     @Test
     void shouldThrowWhenUpdatingNonexistentUser() {
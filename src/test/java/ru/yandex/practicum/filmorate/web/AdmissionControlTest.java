@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private AdmissionControl admission;
+
+    // ____________Helpers___________
+
+    private void createControl(double rate, int burst, int maxWrites) {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setUserRate(rate);
+        properties.setUserBurst(burst);
+        properties.setMaxConcurrentWrites(maxWrites);
+        admission = new AdmissionControl(properties, now::get);
+    }
+
+    // Admits and immediately completes one write
+    private void write(int userId) {
+        admission.admit(userId);
+        admission.release();
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @BeforeEach
+    void setUp() {
+        createControl(10, 5, 100);
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldAllowBurstThenReject() {
+        for (int i = 0; i < 5; i++) {
+            write(1);
+        }
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> write(1));
+        assertEquals(1, e.getRetryAfterSeconds());
+    }
+
+    @Test
+    void shouldRefillAtConfiguredRate() {
+        for (int i = 0; i < 5; i++) {
+            write(1);
+        }
+        assertThrows(TooManyRequestsException.class, () -> write(1));
+
+        advanceMillis(100); // one token at 10 per second
+        write(1);
+        assertThrows(TooManyRequestsException.class, () -> write(1));
+
+        advanceMillis(10_000); // idle for long: the bucket is full again, but not fuller
+        for (int i = 0; i < 5; i++) {
+            write(1);
+        }
+        assertThrows(TooManyRequestsException.class, () -> write(1));
+    }
+
+    @Test
+    void shouldLimitUsersIndependently() {
+        for (int i = 0; i < 5; i++) {
+            write(1);
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> write(1));
+        assertDoesNotThrow(() -> write(2));
+    }
+
+    @Test
+    void shouldReportLongerRetryAfterForSlowRates() {
+        createControl(0.1, 1, 100); // one write per 10 seconds
+        write(1);
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> write(1));
+        assertEquals(10, e.getRetryAfterSeconds());
+    }
+
+    @Test
+    void shouldShedWritesOverGlobalLimit() {
+        createControl(1000, 1000, 2);
+        admission.admit(1);
+        admission.admit(2);
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> admission.admit(3));
+        assertEquals(1, e.getRetryAfterSeconds());
+
+        admission.release();
+        assertDoesNotThrow(() -> admission.admit(3));
+        assertEquals(0, admission.availableWrites());
+    }
+
+    @Test
+    void shouldNotAdmitMoreThanBurstUnderContention() throws InterruptedException {
+        createControl(10, 50, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    write(7);
+                    admitted.incrementAndGet();
+                } catch (TooManyRequestsException | InterruptedException ignored) {
+                    // rejected
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(50, admitted.get());
+    }
+
+    @Test
+    void shouldNotChargeUserForGloballyShedWrite() {
+        createControl(10, 1, 1);
+        admission.admit(1);
+
+        assertThrows(TooManyRequestsException.class, () -> admission.admit(2));
+        admission.release();
+
+        assertDoesNotThrow(() -> write(2));
+        assertEquals(1, admission.availableWrites());
+    }
+
+    @Test
+    void shouldForgetIdleUsers() {
+        for (int userId = 1; userId <= 100; userId++) {
+            write(userId);
+        }
+        assertEquals(100, admission.trackedUsers());
+
+        advanceMillis(60_000);
+        write(101);
+
+        assertEquals(1, admission.trackedUsers());
+        for (int i = 0; i < 5; i++) {
+            write(1);
+        }
+        assertThrows(TooManyRequestsException.class, () -> write(1));
+    }
+
+    @Test
+    void shouldTakeOnlyWriteSlotForLikeBatch() {
+        createControl(10, 1, 2);
+        WriteAdmissionInterceptor interceptor = new WriteAdmissionInterceptor(admission);
+        MockHttpServletRequest batch = new MockHttpServletRequest("POST", "/films/likes/batch");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(batch, response, null);
+        assertEquals(1, admission.availableWrites());
+        interceptor.afterCompletion(batch, response, null, null);
+        assertEquals(2, admission.availableWrites());
+
+        interceptor.preHandle(batch, response, null);
+        interceptor.preHandle(new MockHttpServletRequest("POST", "/films/likes/batch"), response, null);
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(batch, response, null));
+    }
+}
\ No newline at end of file
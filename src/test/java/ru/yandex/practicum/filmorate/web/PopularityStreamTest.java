@@ -0,0 +1,244 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularityStreamTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private InMemoryFilmStorage filmStorage;
+    private PopularityIndex popularityIndex;
+    private PopularityStream stream;
+
+    // ____________Helpers___________
+
+    // Keeps the JSON data of every frame written to it
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            for (DataWithMediaType item : items) {
+                if (MediaType.APPLICATION_JSON.equals(item.getMediaType())) {
+                    frames.add((String) item.getData());
+                }
+            }
+        }
+    }
+
+    private int createFilm() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        Film created = filmStorage.addFilm(film);
+        popularityIndex.filmAdded(created);
+        return created.getId();
+    }
+
+    private void like(int filmId, int userId) {
+        filmStorage.addLike(filmId, userId);
+        popularityIndex.likeChanged(filmId, 1);
+        stream.onLikeChanged(new LikeChangedEvent(filmId, userId, true));
+    }
+
+    // Frames are sent by a background thread
+    private static List<String> awaitFrames(RecordingEmitter emitter, int count) throws InterruptedException {
+        for (int i = 0; i < 200 && emitter.frames.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        return emitter.frames;
+    }
+
+    private List<Integer> filmIds(String frame) throws IOException {
+        return objectMapper.readTree(frame).get("films").findValuesAsText("id").stream()
+                .map(Integer::valueOf)
+                .toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        popularityIndex = new PopularityIndex(filmStorage);
+        PopularStreamProperties properties = new PopularStreamProperties();
+        properties.setInterval(Duration.ZERO);
+        properties.setMaxCount(10);
+        properties.setSendTimeout(Duration.ofMillis(100));
+        stream = new PopularityStream(popularityIndex, objectMapper, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.close();
+    }
+
+    // ____________Tests___________
+
+    @Test
+    void shouldSendCurrentRankingOnSubscribe() throws Exception {
+        int f1 = createFilm();
+        int f2 = createFilm();
+        like(f2, 1);
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        stream.subscribe(2, emitter);
+
+        List<String> frames = awaitFrames(emitter, 1);
+        assertEquals(1, frames.size());
+        assertEquals(List.of(f2, f1), filmIds(frames.get(0)));
+        assertEquals(1, objectMapper.readTree(frames.get(0)).get("films").get(0).get("likes").asInt());
+    }
+
+    @Test
+    void shouldCoalesceLikesIntoOneFrame() throws Exception {
+        int f1 = createFilm();
+        int f2 = createFilm();
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(2, emitter);
+        awaitFrames(emitter, 1);
+
+        like(f2, 1);
+        like(f2, 2);
+        like(f1, 3);
+        stream.publishChanges();
+        stream.publishChanges(); // nothing has changed since the previous frame
+
+        List<String> frames = awaitFrames(emitter, 2);
+        Thread.sleep(50);
+        assertEquals(2, frames.size());
+        JsonNode frame = objectMapper.readTree(frames.get(1));
+        assertEquals(List.of(f2, f1), filmIds(frames.get(1)));
+        assertEquals(2, frame.get("films").get(0).get("likes").asInt());
+        assertEquals(List.of(f2, f1), objectMapper.convertValue(frame.get("changed"), List.class));
+    }
+
+    @Test
+    void shouldShareOneFrameBetweenSubscribersOfTheSameCount() throws Exception {
+        int f1 = createFilm();
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        stream.subscribe(1, first);
+        stream.subscribe(1, second);
+        // Otherwise the new frame may replace a first frame that has not been sent yet
+        awaitFrames(first, 1);
+        awaitFrames(second, 1);
+
+        like(f1, 1);
+        stream.publishChanges();
+
+        List<String> firstFrames = awaitFrames(first, 2);
+        List<String> secondFrames = awaitFrames(second, 2);
+        assertSame(firstFrames.get(1), secondFrames.get(1));
+        assertEquals(2, stream.getSubscriberCount());
+    }
+
+    @Test
+    void shouldSkipFramesForSlowSubscriberWithoutBlockingPublisher() throws Exception {
+        int f1 = createFilm();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter() {
+            @Override
+            public void send(Set<DataWithMediaType> items) throws IOException {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(items);
+            }
+        };
+        stream.subscribe(1, slow);
+        assertTrue(entered.await(2, TimeUnit.SECONDS)); // the initial frame is stuck in send()
+
+        for (int userId = 1; userId <= 5; userId++) {
+            like(f1, userId);
+            stream.publishChanges();
+        }
+        release.countDown();
+
+        List<String> frames = awaitFrames(slow, 2);
+        Thread.sleep(50);
+        assertEquals(2, frames.size());
+        assertEquals(5, objectMapper.readTree(frames.get(1)).get("films").get(0).get("likes").asInt());
+    }
+
+    @Test
+    void shouldDropSubscriberWhenSendFails() throws Exception {
+        int f1 = createFilm();
+        CountDownLatch failed = new CountDownLatch(1);
+        stream.subscribe(1, new SseEmitter() {
+            @Override
+            public void send(Set<DataWithMediaType> items) throws IOException {
+                failed.countDown();
+                throw new IOException("Broken pipe");
+            }
+        });
+
+        assertTrue(failed.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 200 && stream.getSubscriberCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, stream.getSubscriberCount());
+        like(f1, 1);
+        stream.publishChanges();
+    }
+
+    @Test
+    void shouldDropStalledSubscribersWithoutHoldingUpOthers() throws Exception {
+        createFilm();
+        CountDownLatch stuck = new CountDownLatch(5);
+        CountDownLatch interrupted = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            stream.subscribe(1, new SseEmitter() {
+                @Override
+                public void send(Set<DataWithMediaType> items) {
+                    stuck.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(5)); // a client that never reads
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+            });
+        }
+        assertTrue(stuck.await(2, TimeUnit.SECONDS));
+        RecordingEmitter healthy = new RecordingEmitter();
+
+        stream.subscribe(1, healthy);
+
+        assertEquals(1, awaitFrames(healthy, 1).size()); // the stuck sends do not hold up this one
+        Thread.sleep(150);
+        stream.dropStalledSubscribers();
+        assertEquals(1, stream.getSubscriberCount());
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldRejectInvalidCount() {
+        assertThrows(ValidationException.class, () -> stream.subscribe(0, new SseEmitter()));
+        assertThrows(ValidationException.class, () -> stream.subscribe(11, new SseEmitter()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares payload size and serialization time of JSON, CBOR and Smile for lists of films and users.
+// The default suite only checks sizes and the Smile round trip; the timing table is printed by the tests
+// tagged "benchmark", which run with mvn test -Pbenchmark.
+class ResponseEncodingBenchmarkTest {
+    private static final int LIST_SIZE = 1_000;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int MEASURED_ROUNDS = 100;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.json().factory(SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build()).build();
+
+    // ____________Helpers___________
+
+    // Films with the same few MPA ratings and genres, like the real catalog
+    private List<Film> makeFilms() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= LIST_SIZE; i++) {
+            Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")));
+            Set<Integer> likes = new HashSet<>();
+            for (int userId = 1; userId <= i % 50; userId++) {
+                likes.add(userId);
+            }
+            films.add(new Film(i, "Film " + i, "Description of film number " + i,
+                    LocalDate.of(2000, 1, 1).plusDays(i), 90 + i % 60,
+                    new MpaRating(1 + i % 5, "PG-13"), genres, likes, 0L));
+        }
+        return films;
+    }
+
+    private List<User> makeUsers() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= LIST_SIZE; i++) {
+            users.add(new User(i, "user" + i + "@mail.com", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1).plusDays(i), new HashSet<>(), 0L));
+        }
+        return users;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    // Average serialization time in microseconds
+    private static double measure(ObjectMapper mapper, Object value) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        return (System.nanoTime() - start) / 1_000.0 / MEASURED_ROUNDS;
+    }
+
+    private void assertSmallerThanJson(Object value) throws IOException {
+        int jsonSize = json.writeValueAsBytes(value).length;
+        assertTrue(cbor.writeValueAsBytes(value).length < jsonSize);
+        assertTrue(smile.writeValueAsBytes(value).length < jsonSize);
+    }
+
+    private void printTimings(String name, Object value) throws IOException {
+        for (String format : List.of("json", "cbor", "smile")) {
+            ObjectMapper mapper = format.equals("json") ? json : format.equals("cbor") ? cbor : smile;
+            byte[] bytes = mapper.writeValueAsBytes(value);
+            System.out.printf("%-6s %-6s %8d bytes (gzip %7d) %9.1f us%n", name, format,
+                    bytes.length, gzip(bytes).length, measure(mapper, value));
+        }
+    }
+
+    // ____________Tests___________
+
+    // Test: Binary encodings of a film list should be smaller than JSON
+    @Test
+    void shouldEncodeFilmListSmallerThanJson() throws IOException {
+        assertSmallerThanJson(makeFilms());
+    }
+
+    // Test: Binary encodings of a user list should be smaller than JSON
+    @Test
+    void shouldEncodeUserListSmallerThanJson() throws IOException {
+        assertSmallerThanJson(makeUsers());
+    }
+
+    // Benchmark: size and serialization time of every encoding
+    @Test
+    @Tag("benchmark")
+    void printEncodingTimings() throws IOException {
+        printTimings("films", makeFilms());
+        printTimings("users", makeUsers());
+    }
+
+    // Test: A film list should survive a round trip through Smile
+    @Test
+    void shouldReadBackSmileEncodedFilms() throws IOException {
+        List<Film> films = makeFilms();
+        Film[] decoded = smile.readValue(smile.writeValueAsBytes(films), Film[].class);
+
+        assertEquals(films.size(), decoded.length);
+        assertEquals(films.get(0), decoded[0]);
+    }
+}
\ No newline at end of file